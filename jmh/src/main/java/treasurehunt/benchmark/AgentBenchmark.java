@@ -0,0 +1,38 @@
+package treasurehunt.benchmark;
+
+import org.openjdk.jmh.annotations.*;
+import treasurehunt.Agent;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks a whole Agent.get_action cycle, updating the Map with the view
+ * and deciding on the next action, from a LevelSnapshot.
+ *
+ * Deciding changes the Map and the Agent's plan, so each invocation gets a new
+ * Agent on a new copy of the snapshot, which is not part of the time. A
+ * decision takes tens of microseconds or more, long enough for each one to be
+ * timed on its own.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class AgentBenchmark
+{
+    @State(Scope.Thread)
+    public static class Game
+    {
+        Agent agent;
+
+        @Setup(Level.Invocation)
+        public void load(LevelSnapshot snapshot) { agent = new Agent(snapshot.load()); }
+    }
+
+    @Benchmark
+    public char getAction(Game game, LevelSnapshot snapshot)
+    {
+        return game.agent.get_action(snapshot.view());
+    }
+}
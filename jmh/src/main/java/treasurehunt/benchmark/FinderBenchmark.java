@@ -0,0 +1,54 @@
+package treasurehunt.benchmark;
+
+import org.openjdk.jmh.annotations.*;
+import treasurehunt.map.MapTile;
+import treasurehunt.search.find.CoastalFinder;
+import treasurehunt.search.find.HarbourFinder;
+import treasurehunt.search.find.HomeHarbourFinder;
+import treasurehunt.search.find.UnexploredFinder;
+
+import java.util.HashSet;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks each TileFinder on a LevelSnapshot, along with the frontier the
+ * Map keeps of the same tiles an UnexploredFinder finds.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class FinderBenchmark
+{
+    @Benchmark
+    public HashSet<MapTile> unexplored(SearchFixture fixture)
+    {
+        return new UnexploredFinder(fixture.map).find();
+    }
+
+    @Benchmark
+    public HashSet<MapTile> frontier(SearchFixture fixture)
+    {
+        return fixture.map.getUnexploredTiles();
+    }
+
+    @Benchmark
+    public HashSet<MapTile> coastal(SearchFixture fixture)
+    {
+        return new CoastalFinder(fixture.map, fixture.player.getZone()).find();
+    }
+
+    @Benchmark
+    public HashSet<MapTile> harbour(SearchFixture fixture)
+    {
+        if(fixture.water == null) return null;
+        return new HarbourFinder(fixture.map, true).find(fixture.water);
+    }
+
+    @Benchmark
+    public HashSet<MapTile> homeHarbour(SearchFixture fixture)
+    {
+        return new HomeHarbourFinder(fixture.map).find();
+    }
+}
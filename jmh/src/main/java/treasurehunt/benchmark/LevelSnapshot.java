@@ -0,0 +1,81 @@
+package treasurehunt.benchmark;
+
+import org.openjdk.jmh.annotations.*;
+import treasurehunt.Agent;
+import treasurehunt.Step;
+import treasurehunt.constant.Action;
+import treasurehunt.map.Map;
+import treasurehunt.map.MapSnapshot;
+
+import java.io.*;
+
+/**
+ * The fixture every benchmark is run against: a MapSnapshot of the Map an
+ * Agent had built part way through one of the levels, along with the view it
+ * had at that point.
+ *
+ * The level is played once for each trial, by an Agent for the given number of
+ * moves while a second Map follows along with the same views and actions, and
+ * that Map is saved as a snapshot. Each benchmark then loads its own Map from
+ * the snapshot, so one that changes the Map never changes what another sees.
+ *
+ * The levels are looked for in the levels directory, relative to wherever the
+ * benchmarks are run from.
+ */
+@State(Scope.Benchmark)
+public class LevelSnapshot
+{
+    @Param({"0", "1", "2", "3", "4", "5", "6", "7", "8", "9", "10", "11"})
+    public String level;
+
+    @Param("60")
+    public int moves;
+
+    @Param("levels")
+    public String levels;
+
+    private byte[] snapshot;
+    private char[][] view;
+
+    @Setup(Level.Trial)
+    public void play() throws IOException
+    {
+        Step step = new Step(new File(levels, level + ".map").getPath());
+        Agent agent = new Agent();
+        Map map = new Map();
+
+        for(int m = 0; m < moves && !step.isWon() && !step.isLost(); m++) {
+            char[][] view = step.look();
+            map.update(view);
+
+            char action = agent.get_action(view);
+            map.update(Action.getAction(action));
+            step.act(action);
+        }
+
+        view = step.look();
+        map.update(view);
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        MapSnapshot.write(map, new DataOutputStream(bytes));
+        snapshot = bytes.toByteArray();
+    }
+
+    /**
+     * Loads a new Map from the snapshot.
+     */
+    public Map load()
+    {
+        try {
+            return MapSnapshot.read(new DataInputStream(new ByteArrayInputStream(snapshot)));
+        }
+        catch(IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * The view the Agent had when the snapshot was taken.
+     */
+    public char[][] view() { return view; }
+}
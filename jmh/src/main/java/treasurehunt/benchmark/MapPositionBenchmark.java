@@ -0,0 +1,102 @@
+package treasurehunt.benchmark;
+
+import org.openjdk.jmh.annotations.*;
+import treasurehunt.map.Map;
+import treasurehunt.map.MapPosition;
+
+import java.util.HashSet;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks HashSet lookups of MapPosition against the previous x*100 + y
+ * hash, and interned positions against newly allocated ones, looking up every
+ * position a map could have.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@OperationsPerInvocation(MapPositionBenchmark.LOOKUPS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MapPositionBenchmark
+{
+    private static final int RADIUS_X = Map.MAX_WIDTH - 1;
+    private static final int RADIUS_Y = Map.MAX_HEIGHT - 1;
+
+    static final int LOOKUPS = (2*RADIUS_X + 1) * (2*RADIUS_Y + 1);
+
+    /**
+     * MapPosition as it was hashed before the packed key was introduced. Kept
+     * here only so the two hashes can be compared.
+     */
+    private static class LegacyPosition
+    {
+        private final int x;
+        private final int y;
+
+        LegacyPosition(int x, int y)
+        {
+            this.x = x;
+            this.y = y;
+        }
+
+        public boolean equals(Object object)
+        {
+            LegacyPosition position = (LegacyPosition) object;
+            return x == position.x && y == position.y;
+        }
+
+        public int hashCode() { return x*100 + y; }
+    }
+
+    private final HashSet<LegacyPosition> legacy = new HashSet<>();
+    private final HashSet<MapPosition> packed = new HashSet<>();
+
+    @Setup(Level.Trial)
+    public void fill()
+    {
+        for(int x = -RADIUS_X; x <= RADIUS_X; x++) {
+            for(int y = -RADIUS_Y; y <= RADIUS_Y; y++) {
+                legacy.add(new LegacyPosition(x, y));
+                packed.add(MapPosition.of(x, y));
+            }
+        }
+    }
+
+    @Benchmark
+    public int legacyHash()
+    {
+        int hits = 0;
+        for(int x = -RADIUS_X; x <= RADIUS_X; x++) {
+            for(int y = -RADIUS_Y; y <= RADIUS_Y; y++) {
+                if(legacy.contains(new LegacyPosition(x, y))) hits++;
+            }
+        }
+        return hits;
+    }
+
+    @Benchmark
+    public int packedHashNewPosition()
+    {
+        int hits = 0;
+        for(int x = -RADIUS_X; x <= RADIUS_X; x++) {
+            for(int y = -RADIUS_Y; y <= RADIUS_Y; y++) {
+                if(packed.contains(new MapPosition(x, y))) hits++;
+            }
+        }
+        return hits;
+    }
+
+    @Benchmark
+    public int packedHashInterned()
+    {
+        int hits = 0;
+        for(int x = -RADIUS_X; x <= RADIUS_X; x++) {
+            for(int y = -RADIUS_Y; y <= RADIUS_Y; y++) {
+                if(packed.contains(MapPosition.of(x, y))) hits++;
+            }
+        }
+        return hits;
+    }
+}
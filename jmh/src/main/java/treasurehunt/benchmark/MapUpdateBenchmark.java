@@ -0,0 +1,42 @@
+package treasurehunt.benchmark;
+
+import org.openjdk.jmh.annotations.*;
+import treasurehunt.map.Map;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks Map.update(char[][]) with the view from a LevelSnapshot, both on
+ * a new Map and on the snapshot's own Map, which has already seen it.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MapUpdateBenchmark
+{
+    @State(Scope.Thread)
+    public static class Seen
+    {
+        Map map;
+
+        @Setup(Level.Trial)
+        public void load(LevelSnapshot snapshot) { map = snapshot.load(); }
+    }
+
+    @Benchmark
+    public Map newMap(LevelSnapshot snapshot)
+    {
+        Map map = new Map();
+        map.update(snapshot.view());
+        return map;
+    }
+
+    @Benchmark
+    public Map seenView(Seen seen, LevelSnapshot snapshot)
+    {
+        seen.map.update(snapshot.view());
+        return seen.map;
+    }
+}
@@ -0,0 +1,39 @@
+package treasurehunt.benchmark;
+
+import org.openjdk.jmh.annotations.*;
+import treasurehunt.map.MapTile;
+import treasurehunt.search.MapSearch;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks MapSearch.getPath on a LevelSnapshot: to the farthest tile the
+ * player can reach, with and without the cost of turning, and to whichever
+ * unexplored tile is nearest.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PathBenchmark
+{
+    @Benchmark
+    public MapTile[] farthest(SearchFixture fixture)
+    {
+        return MapSearch.getPath(fixture.map, fixture.player, fixture.map.getPlayer().getDirection(), fixture.farthest, false, false, false);
+    }
+
+    @Benchmark
+    public MapTile[] turnFree(SearchFixture fixture)
+    {
+        return MapSearch.getPath(fixture.map, fixture.player, fixture.farthest, false, false, false);
+    }
+
+    @Benchmark
+    public MapTile[] allUnexplored(SearchFixture fixture)
+    {
+        if(fixture.unexplored == null) return null;
+        return MapSearch.getPath(fixture.map, fixture.player, fixture.map.getPlayer().getDirection(), fixture.unexplored, null, false, false, false);
+    }
+}
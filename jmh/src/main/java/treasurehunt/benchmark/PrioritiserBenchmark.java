@@ -0,0 +1,67 @@
+package treasurehunt.benchmark;
+
+import org.openjdk.jmh.annotations.*;
+import treasurehunt.map.MapTile;
+import treasurehunt.search.priority.*;
+
+import java.util.HashSet;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks each TilePrioritiser on a LevelSnapshot, ranking every tile the
+ * matching TileFinder found.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PrioritiserBenchmark
+{
+    @Benchmark
+    public MapTile[] unexplored(SearchFixture fixture)
+    {
+        return prioritise(new UnexploredPrioritiser(fixture.map), fixture.unexploredTiles);
+    }
+
+    @Benchmark
+    public MapTile[] coastal(SearchFixture fixture)
+    {
+        return prioritise(new CoastalPrioritiser(fixture.map), fixture.coastalTiles);
+    }
+
+    @Benchmark
+    public MapTile[] harbour(SearchFixture fixture)
+    {
+        return prioritise(new HarbourPrioritiser(fixture.map, true), fixture.harbourTiles);
+    }
+
+    @Benchmark
+    public MapTile[] homeHarbour(SearchFixture fixture)
+    {
+        return prioritise(new HomeHarbourPrioritiser(fixture.map), fixture.harbourTiles);
+    }
+
+    @Benchmark
+    public MapTile[] stoneTarget(SearchFixture fixture)
+    {
+        return prioritise(new StoneTargetPrioritiser(fixture.map), fixture.coastalTiles);
+    }
+
+    /**
+     * Only the best stone target, which is all the Agent asks for.
+     */
+    @Benchmark
+    public MapTile stoneTargetBest(SearchFixture fixture)
+    {
+        TilePrioritiser prioritiser = new StoneTargetPrioritiser(fixture.map);
+        prioritiser.addTiles(fixture.coastalTiles);
+        return prioritiser.next();
+    }
+
+    private static MapTile[] prioritise(TilePrioritiser prioritiser, HashSet<MapTile> tiles)
+    {
+        prioritiser.addTiles(tiles);
+        return prioritiser.toArray();
+    }
+}
@@ -0,0 +1,80 @@
+package treasurehunt.benchmark;
+
+import org.openjdk.jmh.annotations.*;
+import treasurehunt.constant.Obstacle;
+import treasurehunt.map.Map;
+import treasurehunt.map.MapTile;
+import treasurehunt.search.MapSearch;
+import treasurehunt.search.find.CoastalFinder;
+import treasurehunt.search.find.HarbourFinder;
+import treasurehunt.search.find.UnexploredFinder;
+
+import java.util.HashSet;
+
+/**
+ * A Map loaded from a LevelSnapshot along with the tiles the searches are run
+ * from and to: the player's tile, the farthest tile the player can reach, the
+ * first water tile and the tiles each TileFinder finds, which are what the
+ * TilePrioritisers are given.
+ */
+@State(Scope.Benchmark)
+public class SearchFixture
+{
+    Map map;
+    MapTile player;
+    MapTile farthest;
+    MapTile water;
+    MapTile[] unexplored;
+
+    HashSet<MapTile> unexploredTiles;
+    HashSet<MapTile> coastalTiles;
+    HashSet<MapTile> harbourTiles;
+
+    @Setup(Level.Trial)
+    public void load(LevelSnapshot snapshot)
+    {
+        map = snapshot.load();
+        player = map.getPlayer().getTile();
+        farthest = farthest(map, player);
+        water = firstWater(map);
+        unexplored = MapSearch.findUnexploredTiles(map);
+
+        unexploredTiles = new UnexploredFinder(map).find();
+        coastalTiles = new CoastalFinder(map, player.getZone()).find();
+        harbourTiles = water == null ? new HashSet<>() : new HarbourFinder(map, true).find(water);
+
+        // Some prioritisers divide by the distance to the player.
+        unexploredTiles.remove(player);
+        coastalTiles.remove(player);
+        harbourTiles.remove(player);
+    }
+
+    private static MapTile farthest(Map map, MapTile from)
+    {
+        MapTile farthest = from;
+        int best = -1;
+
+        for(int i = 0; i < map.numTiles(); i++) {
+            MapTile tile = map.getTileByIndex(i);
+            if(!tile.connected(from)) continue;
+
+            int distance = Math.abs(tile.getPosition().getX() - from.getPosition().getX())
+                    + Math.abs(tile.getPosition().getY() - from.getPosition().getY());
+            if(distance > best) {
+                best = distance;
+                farthest = tile;
+            }
+        }
+
+        return farthest;
+    }
+
+    private static MapTile firstWater(Map map)
+    {
+        for(int i = 0; i < map.numTiles(); i++) {
+            MapTile tile = map.getTileByIndex(i);
+            if(tile.getObstacle() == Obstacle.WATER) return tile;
+        }
+        return null;
+    }
+}
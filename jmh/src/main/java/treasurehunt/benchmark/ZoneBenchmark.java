@@ -0,0 +1,64 @@
+package treasurehunt.benchmark;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+import treasurehunt.map.Map;
+import treasurehunt.map.MapTile;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks each of the zone queries of MapTile on a LevelSnapshot, asking it
+ * of every tile on the Map.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ZoneBenchmark
+{
+    @State(Scope.Benchmark)
+    public static class Tiles
+    {
+        MapTile[] tiles;
+
+        @Setup(Level.Trial)
+        public void load(LevelSnapshot snapshot)
+        {
+            Map map = snapshot.load();
+            tiles = new MapTile[map.numTiles()];
+            for(int i = 0; i < tiles.length; i++) tiles[i] = map.getTileByIndex(i);
+        }
+    }
+
+    @Benchmark
+    public void zoneSize(Tiles tiles, Blackhole blackhole)
+    {
+        for(MapTile tile : tiles.tiles) blackhole.consume(tile.zoneSize());
+    }
+
+    @Benchmark
+    public void numExploredInZone(Tiles tiles, Blackhole blackhole)
+    {
+        for(MapTile tile : tiles.tiles) blackhole.consume(tile.numExploredInZone());
+    }
+
+    @Benchmark
+    public void zoneReward(Tiles tiles, Blackhole blackhole)
+    {
+        for(MapTile tile : tiles.tiles) blackhole.consume(tile.zoneReward());
+    }
+
+    @Benchmark
+    public void numAdjacentZones(Tiles tiles, Blackhole blackhole)
+    {
+        for(MapTile tile : tiles.tiles) blackhole.consume(tile.numAdjacentZones());
+    }
+
+    @Benchmark
+    public void zoneContainsTree(Tiles tiles, Blackhole blackhole)
+    {
+        for(MapTile tile : tiles.tiles) blackhole.consume(tile.zoneContainsTree());
+    }
+}
@@ -13,9 +13,11 @@ import treasurehunt.constant.Obstacle;
 import treasurehunt.constant.Tool;
 import treasurehunt.exception.InvalidTaskException;
 import treasurehunt.map.Map;
-import treasurehunt.map.MapPosition;
 import treasurehunt.map.MapTile;
+import treasurehunt.map.Player;
 import treasurehunt.search.MapSearch;
+import treasurehunt.search.TargetSource;
+import treasurehunt.search.TileReward;
 import treasurehunt.util.Debug;
 import treasurehunt.util.Task;
 
@@ -24,8 +26,30 @@ import java.net.*;
 
 public class Agent 
 {
-	private final Map map = new Map();
+	// How many actions a target worth one more reward than another is worth
+	// going out of the way for, see buildPath(TargetSource, ...).
+	private static final int ACTIONS_PER_REWARD = 2;
+
+	private final Map map;
 	private Task task = null;
+
+	public Agent()
+	{
+		this(new Map());
+	}
+
+	/**
+	 * Creates an Agent that carries on from a Map it has already explored,
+	 * i.e. one loaded from a MapSnapshot.
+	 *
+	 * @param map The Map to carry on from.
+	 */
+	public Agent(Map map)
+	{
+		this.map = map;
+	}
+
+	public Map getMap() { return map; }
 	
 	public char get_action(char view[][])
 	{
@@ -45,7 +69,7 @@ public class Agent
 	private char get_automatic_action()
 	{
 		if(task == null || task.isFinished()) getTask();
-		if(task == null) return 0;
+		if(task == null || task.isFinished()) return 0;
 
 		Action action = task.poll();
 		if(map.update(action)) return action.getChar();
@@ -136,9 +160,9 @@ public class Agent
 			}
 
 			if(!map.getPlayer().hasTool(Tool.RAFT) && (task = chopTree()) != null) return;
-			if(map.getPlayer().numOfTool(Tool.STONE) > 0 && (task = placeStone()) != null) return;
+			if(worthBridging() && (task = placeStone()) != null) return;
 
-			if(map.getPlayer().hasTool(Tool.RAFT) && (task = setSail()) != null) return;
+			if(map.getPlayer().hasTool(Tool.RAFT) && worthSailing() && (task = setSail()) != null) return;
 			if(map.getPlayer().hasTool(Tool.AXE) &&  (task = chopTree()) != null) return;
 			task = getTool(Tool.STONE);
 
@@ -174,53 +198,61 @@ public class Agent
 	 */
 	private Task buildTask(Behaviour behaviour, Tool tool, boolean avoidWater, boolean avoidTrees, boolean avoidStones)
 	{
-		MapTile[] targets;
+		MapTile[] targets = null;
+		TargetSource ranked = null;
+		MapTile[] path = null;
 
 		switch(behaviour) {
 			case EXPLORE:
 				Debug.msg("Attempting to explore...");
-				targets = MapSearch.findUnexploredTiles(map);
+				ranked = MapSearch.prioritiseUnexploredTiles(map);
 				break;
 			case PLACE_STONE:
 				Debug.msg("Attempting to place stone...");
-				targets = MapSearch.findStoneTargets(map);
+				ranked = MapSearch.prioritiseStoneTargets(map);
 				break;
 			case GET_TOOL:
 				Debug.msg("Attempting to get tool, " + tool + "...");
-				targets = map.getTiles(tool);
+				ranked = MapSearch.nearestTiles(map, tool);
 				break;
 			case CHOP_TREE:
 				Debug.msg("Attempting to chop down tree...");
-				targets = map.getTiles(Obstacle.TREE);
+				ranked = MapSearch.nearestTiles(map, Obstacle.TREE);
 				break;
 			case UNLOCK_DOOR:
 				Debug.msg("Attempting to unlock door...");
-				targets = map.getTiles(Obstacle.DOOR);
+				ranked = MapSearch.nearestTiles(map, Obstacle.DOOR);
 				break;
 			case SET_SAIL:
 				Debug.msg("Attempting to set sail...");
-				targets = MapSearch.findCoastalTiles(map);
+				ranked = MapSearch.prioritiseCoastalTiles(map);
 				break;
 			case DOCK:
 				Debug.msg("Attempting to dock...");
-				targets = MapSearch.findHabourTiles(map, true, avoidTrees);
-				if(targets == null || targets.length == 0) targets = MapSearch.findHabourTiles(map);
-				if(targets == null || targets.length == 0) targets = MapSearch.findHabourTiles(map, false, avoidTrees);
+				// A harbour that can be escaped from is best, but if none of
+				// them can be reached any harbour will do.
+				path = buildPath(MapSearch.prioritiseHabourTiles(map, true, avoidTrees), avoidWater, avoidTrees, avoidStones);
+				if(path == null) path = buildPath(MapSearch.prioritiseHabourTiles(map, true, true), avoidWater, avoidTrees, avoidStones);
+				if(path == null) path = buildPath(MapSearch.prioritiseHabourTiles(map, false, avoidTrees), avoidWater, avoidTrees, avoidStones);
+				if(path == null) return null;
 				break;
 			case GO_HOME:
 				Debug.msg("Attempting to go home...");
-				if(map.getPlayer().isSailing()) targets = MapSearch.findHomeHabourTiles(map);
-				else targets = new MapTile[] {map.getTile(new MapPosition(0, 0))};
+				if(map.getPlayer().isSailing()) ranked = MapSearch.prioritiseHomeHabourTiles(map);
+				else targets = new MapTile[] {map.getTile(0, 0)};
 				break;
-			default: targets = null;
 		}
 
-		if(targets == null || targets.length == 0) {
-			Debug.err("No valid targets found.");
-			return null;
+		// DOCK has already found its path.
+		if(behaviour != Behaviour.DOCK) {
+			if(ranked != null && !ranked.isEmpty()) path = buildPath(ranked, avoidWater, avoidTrees, avoidStones);
+			else if(targets != null && targets.length > 0) path = buildPath(targets, avoidWater, avoidTrees, avoidStones);
+			else {
+				Debug.err("No valid targets found.");
+				return null;
+			}
 		}
 
-		MapTile[] path = buildPath(targets, avoidWater, avoidTrees, avoidStones);
 		if(path == null) return null;
 
 		try {
@@ -241,12 +273,12 @@ public class Agent
 
 	/**
 	 * Attempts to construct a path from the player to one of the target's given
-	 * in the list of targets. The path that will be returned will be the first
-	 * valid path to be formed to a target while iterating through all of the
-	 * targets.
+	 * in the list of targets. The path that will be returned will be to the
+	 * first target in the list that can be reached, all of the targets are
+	 * searched for at once.
 	 *
-	 * NOTE: Since the first valid path will be returned it is advised to give
-	 * the targets in order of priority from highest to lowest.
+	 * NOTE: Since the first reachable target will be chosen it is advised to
+	 * give the targets in order of priority from highest to lowest.
 	 *
 	 * @param targets The target MapTile(s) to attempt to form a path to.
 	 * @param avoidWater Whether to avoid water while forming the path.
@@ -254,26 +286,79 @@ public class Agent
 	 *                    path.
 	 * @param avoidStones Whether to avoid picking up stones while forming the
 	 *                    path.
-	 * @return The first valid path to be formed or null if no valid path could
-	 * be found.
+	 * @return The path to the highest priority reachable target or null if no
+	 * valid path could be found.
 	 */
 	private MapTile[] buildPath(MapTile[] targets, boolean avoidWater, boolean avoidTrees, boolean avoidStones)
 	{
-		MapTile[] path = null;
+		return buildPath(targets, null, avoidWater, avoidTrees, avoidStones);
+	}
 
-		for(MapTile target : targets) {
-			Debug.msg("Attempting to build path to: [" + target.getPosition().getX() + ", " + target.getPosition().getY() + "]...");
-			path = MapSearch.getPath(map, map.getPlayer().getTile(), target, avoidWater, avoidTrees, avoidStones);
-			if(path != null) {
-				Debug.msg("Found path!");
-				break;
-			}
+	/**
+	 * Like buildPath(MapTile[], ...) but with a weight for each target, see
+	 * MapSearch.getPath().
+	 *
+	 * @param weights The extra actions each target is worth going without or
+	 *                null to take the first target that can be reached.
+	 */
+	private MapTile[] buildPath(MapTile[] targets, int[] weights, boolean avoidWater, boolean avoidTrees, boolean avoidStones)
+	{
+		Debug.msg("Attempting to build path to one of " + targets.length + " target(s)...");
+		MapTile[] path = MapSearch.getPath(map, map.getPlayer().getTile(), map.getPlayer().getDirection(), targets, weights, avoidWater, avoidTrees, avoidStones);
+
+		if(path == null) {
 			Debug.wrn("Could not find path.");
+			return null;
 		}
 
+		MapTile target = path[path.length - 1];
+		Debug.msg("Found path to: [" + target.getPosition().getX() + ", " + target.getPosition().getY() + "]!");
 		return path;
 	}
 
+	/**
+	 * Attempts to construct a path from the player to the best target that can
+	 * be reached. Rather than finding every target up front, the targets are
+	 * taken from the source best first in batches that double in size until
+	 * one of them can be reached, so only the targets that are tried are ever
+	 * ranked or looked for.
+	 *
+	 * Within a batch a target's reward is traded against the length of the
+	 * path to it. Each target is weighted by how much less it is worth than
+	 * the best target the source handed out, so a target that is worth one
+	 * less has to be at least ACTIONS_PER_REWARD actions closer to be taken
+	 * instead.
+	 *
+	 * @param targets The targets to attempt to form a path to.
+	 * @return The path to the best reachable target or null if no valid path
+	 * could be found.
+	 */
+	private MapTile[] buildPath(TargetSource targets, boolean avoidWater, boolean avoidTrees, boolean avoidStones)
+	{
+		if(targets == null) return null;
+
+		TileReward[] batch = targets.next(4);
+		if(batch.length == 0) return null;
+
+		int best = batch[0].getReward();
+		MapTile[] path;
+
+		for(int size = 4; batch.length > 0; batch = targets.next(size *= 2)) {
+			MapTile[] tiles = new MapTile[batch.length];
+			int[] weights = new int[batch.length];
+
+			for(int i = 0; i < batch.length; i++) {
+				tiles[i] = batch[i].getTile();
+				long weight = ((long) best - batch[i].getReward()) * ACTIONS_PER_REWARD;
+				weights[i] = (int) Math.min(weight, Integer.MAX_VALUE);
+			}
+
+			if((path = buildPath(tiles, weights, avoidWater, avoidTrees, avoidStones)) != null) return path;
+		}
+
+		return null;
+	}
+
 	/**
 	 * Attempts to create an exploring task where the goal is to expand the map
 	 * by stepping in tiles that will allow the player to see new tiles.
@@ -331,6 +416,25 @@ public class Agent
 		return buildTask(Behaviour.SET_SAIL, true, true, true);
 	}
 
+	/**
+	 * Whether setting sail from the player's current zone could lead anywhere
+	 * new, see ZoneGraph.isWorthSailing().
+	 */
+	private boolean worthSailing()
+	{
+		return map.getZoneGraph().isWorthSailing(map.getPlayer().getTile().getZone());
+	}
+
+	/**
+	 * Whether the stones the player has could bridge to land that can't be
+	 * walked to otherwise, see ZoneGraph.isWorthBridging().
+	 */
+	private boolean worthBridging()
+	{
+		Player player = map.getPlayer();
+		return map.getZoneGraph().isWorthBridging(player.getTile().getZone(), player.numOfTool(Tool.STONE), player.hasTool(Tool.KEY));
+	}
+
 	/**
 	 * Attempts to find a harbour to dock at which will provide the player with
 	 * the most potential reward by taking into account the potential rewards on
@@ -358,12 +462,13 @@ public class Agent
 	void print_view(char view[][]) 
 	{
 		int i, j;
+		String border = "+" + "-".repeat(view.length) + "+";
 
-		System.out.println("\n+-----+");
-		for (i = 0; i < 5; i++) {
+		System.out.println("\n" + border);
+		for (i = 0; i < view.length; i++) {
 			System.out.print("|");
-			for (j = 0; j < 5; j++) {
-				if ((i == 2) && (j == 2)) {
+			for (j = 0; j < view[i].length; j++) {
+				if ((i == view.length/2) && (j == view[i].length/2)) {
 					System.out.print('^');
 				} else {
 					System.out.print(view[i][j]);
@@ -371,7 +476,24 @@ public class Agent
 			}
 			System.out.println("|");
 		}
-		System.out.println("+-----+");
+		System.out.println(border);
+	}
+
+	/**
+	 * Whether a command line value turns an option on.
+	 */
+	private static boolean isTrue(String value)
+	{
+		switch(value) {
+			case "t" :
+			case "T" :
+			case "true" :
+			case "True" :
+			case "TRUE" :
+			case "on" :
+			case "ON" : return true;
+			default : return false;
+		}
 	}
 
 	public static void main(String[] args) 
@@ -379,33 +501,37 @@ public class Agent
 		InputStream in = null;
 		OutputStream out = null;
 		Socket socket = null;
-		Agent agent = new Agent();
-		char view[][] = new char[5][5];
 		char action = 'F';
 		int port;
+		int size = Map.VIEW_WIDTH;
+		int bounds = Map.MAX_WIDTH;
+		boolean debug = false;
 		int ch;
 		int i, j;
 
 		if (args.length < 2) {
-			System.out.println("Usage: java treasurehunt.Agent -p <port>\n");
+			System.out.println("Usage: java treasurehunt.Agent -p <port> [-d <debug>] [-v <viewsize>] [-b <bounds>]\n");
 			System.exit(-1);
 		}
 
 		port = Integer.parseInt(args[1]);
 
-		// -debug parameter to show/hide debugging messages.
-		if(args.length == 4) {
-			switch(args[3]) {
-				case "t" :
-				case "T" :
-				case "true" :
-				case "True" :
-				case "TRUE" :
-				case "on" :
-				case "ON" : Debug.on();
+		// -v parameter to play with a larger view, it must match the engine's,
+		// -b parameter to play on a world up to that many tiles a side and
+		// -d parameter to show/hide debugging messages.
+		for(i = 2; i < args.length - 1; i++) {
+			switch(args[i]) {
+				case "-v" : size = Integer.parseInt(args[i + 1]); break;
+				case "-b" : bounds = Integer.parseInt(args[i + 1]); break;
+				case "-d" : debug = isTrue(args[i + 1]); break;
 			}
 		}
 
+		if(debug) Debug.on();
+
+		Agent agent = new Agent(new Map(size, size, bounds, bounds));
+		char view[][] = new char[size][size];
+
 		// open socket to Game Engine
 		try {
 			socket = new Socket("localhost", port);
@@ -416,19 +542,19 @@ public class Agent
 			System.exit(-1);
 		}
 
-		// scan 5-by-5 wintow around current location
+		// scan size-by-size window around current location
 		try { 
 			while (true) {
-				for (i = 0; i < 5; i++) {
-					for (j = 0; j < 5; j++) {
-						if (!((i == 2) && (j == 2))) {
+				for (i = 0; i < size; i++) {
+					for (j = 0; j < size; j++) {
+						if (!((i == size/2) && (j == size/2))) {
 							ch = in.read();
 							if (ch == -1) System.exit(-1);
 							view[i][j] = (char) ch;
 						}
 					}
 				}
-				//agent.print_view(view); // COMMENT THIS OUT BEFORE SUBMISSION
+				if(debug) agent.print_view(view);
 				action = agent.get_action(view);
 				out.write(action);
 			}
@@ -6,6 +6,7 @@ package treasurehunt; /*******************************************
  */
 
 import treasurehunt.Agent;
+import treasurehunt.map.Map;
 
 import java.util.*;
 import java.io.*;
@@ -21,6 +22,7 @@ public class Step
 
   private char[][] map;
   private char[][] view;
+  private int view_radius = 2; // the agent sees a (2r+1)-by-(2r+1) window
 
   private int nrows;     // number of rows in environment
   private int irow,icol; // initial row and column
@@ -46,25 +48,60 @@ public class Step
     System.exit(-1);
   }
 
-  private void read_map( String mapName ) {
+  private Step() {}
+
+  /**
+   * Loads a map so that a game can be played on it in-process, one move at a
+   * time with look() and act(), without a socket or the game ending the JVM.
+   */
+  public Step( String mapName ) throws IOException {
+    this( mapName, 5 );
+  }
+
+  public Step( String mapName, int viewSize ) throws IOException {
+    set_view_size( viewSize );
+    read_map( mapName );
+  }
+
+  private void set_view_size( int viewSize ) {
+    if( viewSize < 3 || viewSize % 2 == 0 ) {
+      throw new IllegalArgumentException( "View size must be odd and at least 3: "+ viewSize );
+    }
+    view_radius = viewSize / 2;
+    view = new char[viewSize][viewSize];
+  }
+
+  public char[][] look() {
+    get_view();
+    return view;
+  }
+
+  public boolean act( char action ) {
+    return apply( action );
+  }
+
+  public boolean isWon()  { return game_won;  }
+  public boolean isLost() { return game_lost; }
+
+  private void read_map( String mapName ) throws IOException {
 
     BufferedReader in;
     boolean agent_here;
     char ch;
     int r,c;
 
-    map = new char[1024][];
+    ArrayList<char[]> rows = new ArrayList<char[]>();
 
     r=-1;
+    in = new BufferedReader(new FileReader(mapName));
     try {
-      in = new BufferedReader(new FileReader(mapName));
       String oneLine = in.readLine();
       while(( oneLine != null )&&( oneLine.length() > 0 )) {
-        map[++r] = new char[oneLine.length()];
+        rows.add( oneLine.toCharArray() );
+        r++;
         for( c=0; c < oneLine.length(); c++ ) {
-          map[r][c] = oneLine.charAt(c);
           agent_here = true;
-          switch( map[r][c] ) {
+          switch( oneLine.charAt(c) ) {
             case '^': dirn = NORTH; break;
             case '>': dirn = EAST;  break;
             case 'v': dirn = SOUTH; break;
@@ -79,12 +116,10 @@ public class Step
         oneLine = in.readLine();
       }
     }
-    catch( FileNotFoundException fnfe ) {
-      swanSong( "File Not Found: "+ mapName );
-    }
-    catch( IOException ioe ) {
-      swanSong( "IO Error" );
+    finally {
+      in.close();
     }
+    map = rows.toArray( new char[0][] );
     nrows = r+1; // number of rows
     irow  = row; // initial row
     icol  = col; // initial column
@@ -252,8 +287,10 @@ public class Step
     char ch;
     int i,j,r=0,c=0;
 
-    for( i = -2; i <= 2; i++ ) {
-      for( j = -2; j <= 2; j++ ) {
+    int v = view_radius;
+
+    for( i = -v; i <= v; i++ ) {
+      for( j = -v; j <= v; j++ ) {
         switch( dirn ) {
           case NORTH: r = row+i; c = col+j; break;
           case SOUTH: r = row-i; c = col-j; break;
@@ -262,10 +299,10 @@ public class Step
         }
         if(  ( r >= 0 )&&( r < nrows )
                 &&( c >= 0 )&&( c < map[r].length )) {
-          view[2+i][2+j] = map[r][c];
+          view[v+i][v+j] = map[r][c];
         }
         else {
-          view[2+i][2+j] = '.';
+          view[v+i][v+j] = '.';
         }
       }
     }
@@ -274,7 +311,7 @@ public class Step
   private static void printUsage()
   {
     swanSong(
-            "Usage: java Step [-p <port>] -i map [-m <maxmoves>] [-s]\n");
+            "Usage: java Step [-p <port>] -i map [-m <maxmoves>] [-v <viewsize>] [-b <bounds>] [-s]\n");
   }
 
   public static void main( String[] args )
@@ -284,11 +321,12 @@ public class Step
     String mapName = "";
     char action  = 'F';
     int maxmoves = 1000;
+    int viewsize = 5;
+    int bounds = Map.MAX_WIDTH;
     int port = 0;
     int k,m;
 
     step = new Step();
-    step.view = new char[5][5];
 
     k=0;
     while( k < args.length ) {
@@ -316,6 +354,22 @@ public class Step
           printUsage();
         }
       }
+      else if( args[k].compareTo("-v") == 0 ) {
+        if( ++k < args.length ) {
+          viewsize = Integer.parseInt(args[k++]);
+        }
+        else {
+          printUsage();
+        }
+      }
+      else if( args[k].compareTo("-b") == 0 ) {
+        if( ++k < args.length ) {
+          bounds = Integer.parseInt(args[k++]);
+        }
+        else {
+          printUsage();
+        }
+      }
       else if( args[k].compareTo("-s") == 0 ) {
         silent = true;
         k++;
@@ -328,7 +382,19 @@ public class Step
     if( mapName.length() == 0 ) {
       printUsage();
     }
-    step.read_map( mapName );
+    if( viewsize < 3 || viewsize % 2 == 0 ) {
+      printUsage();
+    }
+    step.set_view_size( viewsize );
+    try {
+      step.read_map( mapName );
+    }
+    catch( FileNotFoundException fnfe ) {
+      swanSong( "File Not Found: "+ mapName );
+    }
+    catch( IOException ioe ) {
+      swanSong( "IO Error" );
+    }
 
     if( !silent ) {
       step.print_map();
@@ -355,9 +421,9 @@ public class Step
       try {
         for( m=1; m <= maxmoves; m++ ) {
           step.get_view();
-          for( i=0; i < 5; i++ ) {
-            for( j=0; j < 5; j++ ) {
-              if( !(( i == 2 )&&( j == 2 ))) {
+          for( i=0; i < viewsize; i++ ) {
+            for( j=0; j < viewsize; j++ ) {
+              if( !(( i == viewsize/2 )&&( j == viewsize/2 ))) {
                 out.write( step.view[i][j] );
               }
             }
@@ -392,7 +458,7 @@ public class Step
       }
     }
     else {
-      Agent agent = new Agent();
+      Agent agent = new Agent(new Map(viewsize, viewsize, bounds, bounds));
 
       for( m=1; m <= maxmoves; m++ ) {
         step.get_view();
@@ -0,0 +1,214 @@
+package treasurehunt.benchmark;
+
+import treasurehunt.Agent;
+import treasurehunt.Step;
+import treasurehunt.map.Map;
+
+import java.io.File;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.Arrays;
+import java.util.Comparator;
+
+/**
+ * Plays the Agent on every level in a directory, one after another in this
+ * JVM, and reports how many moves each level took to win along with how long
+ * the Agent took to decide on each move and how much memory it allocated.
+ *
+ * Usage: java treasurehunt.benchmark.BatchRunner [levels directory] [-m maxmoves]
+ *        [-v viewsize] [-b bounds]
+ */
+public class BatchRunner
+{
+    private static final int MAX_MOVES = 1000;
+
+    /**
+     * The outcome of playing a single level.
+     */
+    public static class Result
+    {
+        private final String level;
+        private final int moves;
+        private final boolean won;
+        private final boolean lost;
+        private final long totalNanos;
+        private final long maxNanos;
+        private final long allocatedBytes;
+
+        Result(String level, int moves, boolean won, boolean lost, long totalNanos, long maxNanos, long allocatedBytes)
+        {
+            this.level = level;
+            this.moves = moves;
+            this.won = won;
+            this.lost = lost;
+            this.totalNanos = totalNanos;
+            this.maxNanos = maxNanos;
+            this.allocatedBytes = allocatedBytes;
+        }
+
+        public String getLevel() { return level; }
+        public int getMoves() { return moves; }
+        public boolean isWon() { return won; }
+        public boolean isLost() { return lost; }
+        public long getTotalNanos() { return totalNanos; }
+        public long getMaxNanos() { return maxNanos; }
+        public long getAllocatedBytes() { return allocatedBytes; }
+
+        /**
+         * How the game ended, i.e. "Won", "Lost" or "Exceeded".
+         */
+        public String getOutcome() { return won ? "Won" : lost ? "Lost" : "Exceeded"; }
+
+        @Override
+        public String toString()
+        {
+            return String.format("%-12s %-8s %6d %10.1f %10.1f %12s",
+                    level, getOutcome(), moves,
+                    moves == 0 ? 0.0 : totalNanos / 1000.0 / moves, maxNanos / 1000.0,
+                    allocatedBytes < 0 ? "n/a" : String.format("%.1f", allocatedBytes / 1024.0));
+        }
+    }
+
+    public static final String HEADER = String.format("%-12s %-8s %6s %10s %10s %12s",
+            "Level", "Outcome", "Moves", "Mean(us)", "Max(us)", "Alloc(KiB)");
+
+    /**
+     * Plays a fresh Agent on the given level until it wins, loses or runs out of
+     * moves. Allocation is measured for the current thread only and is -1 if
+     * the JVM can't measure it.
+     *
+     * @param level The map file of the level to play.
+     * @param maxMoves The most moves the Agent is allowed to make.
+     * @return The outcome of the game.
+     * @throws IOException If the level could not be read.
+     */
+    public static Result play(File level, int maxMoves) throws IOException
+    {
+        return play(level, maxMoves, Map.VIEW_WIDTH);
+    }
+
+    /**
+     * Plays a fresh Agent on the given level with a larger or smaller view than
+     * the default.
+     *
+     * @param level The map file of the level to play.
+     * @param maxMoves The most moves the Agent is allowed to make.
+     * @param viewSize The width and height of the view, an odd number.
+     * @return The outcome of the game.
+     * @throws IOException If the level could not be read.
+     */
+    public static Result play(File level, int maxMoves, int viewSize) throws IOException
+    {
+        return play(level, maxMoves, viewSize, Map.MAX_WIDTH);
+    }
+
+    /**
+     * Plays a fresh Agent on the given level with the given view and on a
+     * world of up to the given size.
+     *
+     * @param level The map file of the level to play.
+     * @param maxMoves The most moves the Agent is allowed to make.
+     * @param viewSize The width and height of the view, an odd number.
+     * @param bounds The width and height of the largest map the level could be.
+     * @return The outcome of the game.
+     * @throws IOException If the level could not be read.
+     */
+    public static Result play(File level, int maxMoves, int viewSize, int bounds) throws IOException
+    {
+        Step step = new Step(level.getPath(), viewSize);
+        Agent agent = new Agent(new Map(viewSize, viewSize, bounds, bounds));
+
+        long allocatedBefore = allocatedBytes();
+        long totalNanos = 0, maxNanos = 0;
+        int moves = 0;
+
+        while(moves < maxMoves && !step.isWon() && !step.isLost()) {
+            char[][] view = step.look();
+
+            long start = System.nanoTime();
+            char action = agent.get_action(view);
+            long elapsed = System.nanoTime() - start;
+
+            totalNanos += elapsed;
+            maxNanos = Math.max(maxNanos, elapsed);
+            moves++;
+
+            step.act(action);
+        }
+
+        long allocated = allocatedBefore < 0 ? -1 : allocatedBytes() - allocatedBefore;
+        return new Result(level.getName(), moves, step.isWon(), step.isLost(), totalNanos, maxNanos, allocated);
+    }
+
+    /**
+     * Finds every level in the given directory, ordered by level number.
+     */
+    public static File[] findLevels(File directory)
+    {
+        File[] levels = directory.listFiles((dir, name) -> name.endsWith(".map"));
+        if(levels == null) return new File[0];
+
+        Arrays.sort(levels, Comparator.comparingInt(BatchRunner::levelNumber).thenComparing(File::getName));
+        return levels;
+    }
+
+    private static int levelNumber(File level)
+    {
+        String name = level.getName().replace(".map", "");
+        try {
+            return Integer.parseInt(name);
+        } catch (NumberFormatException e) {
+            return Integer.MAX_VALUE;
+        }
+    }
+
+    private static long allocatedBytes()
+    {
+        ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+        if(!(threads instanceof com.sun.management.ThreadMXBean)) return -1;
+
+        com.sun.management.ThreadMXBean bean = (com.sun.management.ThreadMXBean) threads;
+        if(!bean.isThreadAllocatedMemorySupported() || !bean.isThreadAllocatedMemoryEnabled()) return -1;
+        return bean.getThreadAllocatedBytes(Thread.currentThread().getId());
+    }
+
+    public static void main(String[] args) throws IOException
+    {
+        File directory = new File("levels");
+        int maxMoves = MAX_MOVES;
+        int viewSize = Map.VIEW_WIDTH;
+        int bounds = Map.MAX_WIDTH;
+
+        for(int i = 0; i < args.length; i++) {
+            if(args[i].equals("-m") && i + 1 < args.length) maxMoves = Integer.parseInt(args[++i]);
+            else if(args[i].equals("-v") && i + 1 < args.length) viewSize = Integer.parseInt(args[++i]);
+            else if(args[i].equals("-b") && i + 1 < args.length) bounds = Integer.parseInt(args[++i]);
+            else directory = new File(args[i]);
+        }
+
+        File[] levels = findLevels(directory);
+        if(levels.length == 0) {
+            System.out.println("No levels found in " + directory.getPath());
+            return;
+        }
+
+        System.out.println(HEADER);
+
+        int won = 0, moves = 0;
+        long nanos = 0;
+
+        for(File level : levels) {
+            Result result = play(level, maxMoves, viewSize, bounds);
+            System.out.println(result);
+
+            if(result.isWon()) {
+                won++;
+                moves += result.getMoves();
+            }
+            nanos += result.getTotalNanos();
+        }
+
+        System.out.printf("Won %d/%d levels in %d moves, %.1f ms deciding%n", won, levels.length, moves, nanos / 1e6);
+    }
+}
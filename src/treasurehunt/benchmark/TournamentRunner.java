@@ -0,0 +1,137 @@
+package treasurehunt.benchmark;
+
+import treasurehunt.benchmark.BatchRunner.Result;
+import treasurehunt.map.Map;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+
+/**
+ * Plays many games at once, every level in a directory for a number of rounds,
+ * spread over a ForkJoinPool. Each game has its own Step, Agent and Map so the
+ * games share nothing but the pool, and the results are combined into a win
+ * rate and move counts for each level.
+ *
+ * Usage: java treasurehunt.benchmark.TournamentRunner [levels directory]
+ *        [-m maxmoves] [-r rounds] [-t threads] [-v viewsize]
+ *        [-b bounds]
+ */
+public class TournamentRunner
+{
+    /**
+     * The combined results of every game played on a single level.
+     */
+    private static class Standing
+    {
+        private final String level;
+        private int games = 0;
+        private int wins = 0;
+        private long winningMoves = 0;
+        private int minMoves = Integer.MAX_VALUE;
+        private int maxMoves = 0;
+        private long nanos = 0;
+
+        Standing(String level)
+        {
+            this.level = level;
+        }
+
+        void add(Result result)
+        {
+            games++;
+            nanos += result.getTotalNanos();
+            if(!result.isWon()) return;
+
+            wins++;
+            winningMoves += result.getMoves();
+            minMoves = Math.min(minMoves, result.getMoves());
+            maxMoves = Math.max(maxMoves, result.getMoves());
+        }
+
+        @Override
+        public String toString()
+        {
+            return String.format("%-12s %6d %8.1f%% %10s %6s %6s %10.1f",
+                    level, games, 100.0 * wins / games,
+                    wins == 0 ? "-" : String.format("%.1f", (double) winningMoves / wins),
+                    wins == 0 ? "-" : minMoves, wins == 0 ? "-" : maxMoves,
+                    nanos / 1e6 / games);
+        }
+    }
+
+    public static void main(String[] args) throws InterruptedException
+    {
+        File directory = new File("levels");
+        int maxMoves = 1000;
+        int rounds = 1;
+        int threads = Runtime.getRuntime().availableProcessors();
+        int viewSize = Map.VIEW_WIDTH;
+        int bounds = Map.MAX_WIDTH;
+
+        for(int i = 0; i < args.length; i++) {
+            if(args[i].equals("-m") && i + 1 < args.length) maxMoves = Integer.parseInt(args[++i]);
+            else if(args[i].equals("-r") && i + 1 < args.length) rounds = Integer.parseInt(args[++i]);
+            else if(args[i].equals("-t") && i + 1 < args.length) threads = Integer.parseInt(args[++i]);
+            else if(args[i].equals("-v") && i + 1 < args.length) viewSize = Integer.parseInt(args[++i]);
+            else if(args[i].equals("-b") && i + 1 < args.length) bounds = Integer.parseInt(args[++i]);
+            else directory = new File(args[i]);
+        }
+
+        File[] levels = BatchRunner.findLevels(directory);
+        if(levels.length == 0) {
+            System.out.println("No levels found in " + directory.getPath());
+            return;
+        }
+
+        List<Callable<Result>> games = new ArrayList<>();
+        final int moves = maxMoves, size = viewSize, world = bounds;
+        for(int round = 0; round < rounds; round++) {
+            for(File level : levels) games.add(() -> BatchRunner.play(level, moves, size, world));
+        }
+
+        ForkJoinPool pool = new ForkJoinPool(threads);
+        long start = System.nanoTime();
+        List<Future<Result>> results;
+
+        try {
+            results = pool.invokeAll(games);
+        } finally {
+            pool.shutdown();
+        }
+
+        long wall = System.nanoTime() - start;
+
+        Standing[] standings = new Standing[levels.length];
+        for(int i = 0; i < levels.length; i++) standings[i] = new Standing(levels[i].getName());
+
+        long nanos = 0;
+        int wins = 0, failures = 0;
+
+        for(int i = 0; i < results.size(); i++) {
+            Result result;
+            try {
+                result = results.get(i).get();
+            } catch (ExecutionException e) {
+                System.out.println("Game on " + levels[i % levels.length].getName() + " failed: " + e.getCause());
+                failures++;
+                continue;
+            }
+
+            standings[i % levels.length].add(result);
+            nanos += result.getTotalNanos();
+            if(result.isWon()) wins++;
+        }
+
+        System.out.println(String.format("%-12s %6s %9s %10s %6s %6s %10s",
+                "Level", "Games", "Win rate", "Mean moves", "Min", "Max", "ms/game"));
+        for(Standing standing : standings) System.out.println(standing);
+
+        System.out.printf("Won %d/%d games on %d thread(s) in %.1f ms, %.1f ms deciding (%.1fx)%n",
+                wins, games.size() - failures, threads, wall / 1e6, nanos / 1e6, (double) nanos / wall);
+    }
+}
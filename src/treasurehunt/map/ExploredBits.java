@@ -0,0 +1,323 @@
+package treasurehunt.map;
+
+import treasurehunt.constant.Direction;
+
+/**
+ * ExploredBits is the only record of which tiles on a Map have been explored.
+ * It keeps three row-major bitsets over the x, y coordinates of the map:
+ * whether a tile has been seen there at all, whether it has been explored and
+ * whether it is WILDERNESS. Everything else that depends on the explored bits,
+ * like the number of explored tiles in each zone or the frontier, is updated
+ * by the Map as it sets them here.
+ *
+ * Keeping the bits by position lets MapTile.explored() ask how far along a row
+ * or column the nearest tile that stops a line of sight is, that is, one that
+ * is explored or WILDERNESS, with nothing unseen before it. Along a row that
+ * is a run of bits in a few longs. Columns are short, no longer than the view,
+ * so they are looked along a bit at a time.
+ *
+ * To count the explored tiles in a rectangle of the map, i.e. around a tile,
+ * a two dimensional Fenwick tree over the explored bits is kept up to date as
+ * they are set. Changing a bit and counting a rectangle then both take
+ * O(log width * log height) no matter how big the rectangle is. The tree is
+ * only ever changed from the bits, so it can't disagree with them.
+ *
+ * Like the TileGrid, the grid keeps track of the world position of its first
+ * cell and grows in whichever direction a tile is set outside of its current
+ * bounds, at least doubling each time. Anything outside of the grid has not
+ * been seen. The tree is rebuilt in linear time from the bits whenever the grid
+ * grows.
+ */
+class ExploredBits
+{
+	private static final int INITIAL_SIZE = 16;
+
+	// One line of bits per row for each of the three bitsets.
+	private long[] seen, explored, wilderness;
+
+	// The Fenwick tree over the explored bits, row-major, one int per cell.
+	private int[] tree;
+
+	// World position of the first cell of the grid.
+	private int originX;
+	private int originY;
+
+	private int width;
+	private int height;
+
+	// The number of longs in each row.
+	private int words;
+
+	ExploredBits()
+	{
+		allocate(-INITIAL_SIZE/2, -INITIAL_SIZE/2, INITIAL_SIZE, INITIAL_SIZE);
+	}
+
+	/**
+	 * Records that a tile has been seen at the given coordinates, growing the
+	 * grid if they are outside of the grid's current bounds.
+	 *
+	 * @param wilderness Whether the tile is WILDERNESS.
+	 */
+	void see(int x, int y, boolean wilderness)
+	{
+		ensureContains(x, y);
+
+		int base = (y - originY) * words;
+		set(seen, base, x - originX, true);
+		set(this.wilderness, base, x - originX, wilderness);
+	}
+
+	/**
+	 * Sets whether the tile at the given coordinates, which must have been
+	 * seen, is explored.
+	 */
+	void setExplored(int x, int y, boolean explored)
+	{
+		int i = x - originX;
+		int j = y - originY;
+		int base = j * words;
+		if(get(this.explored, base, i) == explored) return;
+
+		set(this.explored, base, i, explored);
+
+		int amount = explored ? 1 : -1;
+		for(int b = j; b < height; b |= b + 1) {
+			for(int a = i; a < width; a |= a + 1) tree[b * width + a] += amount;
+		}
+	}
+
+	/**
+	 * Whether the tile at the given coordinates is explored.
+	 */
+	boolean isExplored(int x, int y)
+	{
+		int i = x - originX;
+		int j = y - originY;
+		if(i < 0 || j < 0 || i >= width || j >= height) return false;
+		return get(explored, j * words, i);
+	}
+
+	/**
+	 * Counts the explored tiles in a rectangle of the map, in the same time for
+	 * any size of rectangle.
+	 *
+	 * @return The number of explored tiles from minX, minY to maxX, maxY
+	 * inclusive.
+	 */
+	int countExplored(int minX, int minY, int maxX, int maxY)
+	{
+		int i0 = Math.max(minX - originX, 0), i1 = Math.min(maxX - originX, width - 1);
+		int j0 = Math.max(minY - originY, 0), j1 = Math.min(maxY - originY, height - 1);
+		if(i0 > i1 || j0 > j1) return 0;
+
+		return prefix(i1, j1) - prefix(i0 - 1, j1) - prefix(i1, j0 - 1) + prefix(i0 - 1, j0 - 1);
+	}
+
+	/**
+	 * The number of explored tiles from the first cell of the grid up to and
+	 * including the cell at column i, row j.
+	 */
+	private int prefix(int i, int j)
+	{
+		int sum = 0;
+
+		for(int b = j; b >= 0; b = (b & (b + 1)) - 1) {
+			for(int a = i; a >= 0; a = (a & (a + 1)) - 1) sum += tree[b * width + a];
+		}
+
+		return sum;
+	}
+
+	/**
+	 * Looks along a row or column from the given coordinates for the nearest
+	 * tile that stops a line of sight.
+	 *
+	 * @param x The x coordinate to look from.
+	 * @param y The y coordinate to look from.
+	 * @param direction The direction to look in.
+	 * @param distance How many tiles to look past the coordinates.
+	 * @return The number of steps to the nearest tile that is explored or
+	 * WILDERNESS, if every tile before it has been seen and it is no more than
+	 * the given distance away, -1 otherwise.
+	 */
+	int reach(int x, int y, Direction direction, int distance)
+	{
+		int i = x - originX;
+		int j = y - originY;
+		if(i < 0 || j < 0 || i >= width || j >= height) return -1;
+
+		switch(direction) {
+			case EAST:  return forward(j * words, i, distance);
+			case WEST:  return backward(j * words, i, distance);
+			case SOUTH: return column(i, j, 1, distance);
+			case NORTH: return column(i, j, -1, distance);
+			default:    return -1;
+		}
+	}
+
+	/**
+	 * Looks along a row towards its end from the bit at the given offset.
+	 */
+	private int forward(int base, int offset, int distance)
+	{
+		int from = offset + 1;
+		int length = Math.min(distance, width - from);
+
+		for(int done = 0; done < length; done += 64) {
+			int n = Math.min(64, length - done);
+			long blocked = blocked(base, from + done, n);
+			if(blocked == 0) continue;
+
+			int bit = from + done + Long.numberOfTrailingZeros(blocked);
+			return stops(base, bit) ? bit - offset : -1;
+		}
+
+		// Either the distance ran out or the row did, and nothing past the end
+		// of the grid has been seen.
+		return -1;
+	}
+
+	/**
+	 * Looks along a row towards its start from the bit at the given offset.
+	 */
+	private int backward(int base, int offset, int distance)
+	{
+		int from = Math.max(offset - distance, 0);
+
+		for(int end = offset; end > from; end -= 64) {
+			int n = Math.min(64, end - from);
+			long blocked = blocked(base, end - n, n);
+			if(blocked == 0) continue;
+
+			int bit = end - n + 63 - Long.numberOfLeadingZeros(blocked);
+			return stops(base, bit) ? offset - bit : -1;
+		}
+
+		return -1;
+	}
+
+	/**
+	 * Looks along a column from the given cell, a row at a time in the given
+	 * direction.
+	 */
+	private int column(int i, int j, int step, int distance)
+	{
+		for(int steps = 1; steps <= distance; steps++) {
+			int row = j + steps * step;
+			if(row < 0 || row >= height) return -1;
+
+			int base = row * words;
+			if(!get(seen, base, i)) return -1;
+			if(stops(base, i)) return steps;
+		}
+
+		return -1;
+	}
+
+	/**
+	 * The bits of a row from the given bit for the given number of bits, no
+	 * more than 64, that either haven't been seen or stop a line of sight.
+	 */
+	private long blocked(int base, int from, int n)
+	{
+		long blocked = ~bits(seen, base, from, n) | bits(explored, base, from, n) | bits(wilderness, base, from, n);
+		return n == 64 ? blocked : blocked & ((1L << n) - 1);
+	}
+
+	private boolean stops(int base, int bit)
+	{
+		return get(explored, base, bit) || get(wilderness, base, bit);
+	}
+
+	private static long bits(long[] line, int base, int from, int n)
+	{
+		int word = base + (from >> 6);
+		int shift = from & 63;
+
+		long bits = line[word] >>> shift;
+		if(shift != 0 && shift + n > 64) bits |= line[word + 1] << (64 - shift);
+		return bits;
+	}
+
+	private static boolean get(long[] line, int base, int bit)
+	{
+		return (line[base + (bit >> 6)] & 1L << bit) != 0;
+	}
+
+	private static void set(long[] line, int base, int bit, boolean value)
+	{
+		if(value) line[base + (bit >> 6)] |= 1L << bit;
+		else line[base + (bit >> 6)] &= ~(1L << bit);
+	}
+
+	private void allocate(int originX, int originY, int width, int height)
+	{
+		this.originX = originX;
+		this.originY = originY;
+		this.width = width;
+		this.height = height;
+		this.words = (width + 63) >> 6;
+
+		seen = new long[height * words];
+		explored = new long[height * words];
+		wilderness = new long[height * words];
+		tree = new int[height * width];
+	}
+
+	/**
+	 * Grows the grid so that it covers the given coordinates, in the same way
+	 * as the TileGrid, sets every bit again in its new place and then rebuilds
+	 * the tree.
+	 */
+	private void ensureContains(int x, int y)
+	{
+		int minX = originX, maxX = originX + width - 1;
+		int minY = originY, maxY = originY + height - 1;
+
+		if(x >= minX && x <= maxX && y >= minY && y <= maxY) return;
+
+		if(x < minX) minX = Math.min(x, minX - width);
+		else if(x > maxX) maxX = Math.max(x, maxX + width);
+		if(y < minY) minY = Math.min(y, minY - height);
+		else if(y > maxY) maxY = Math.max(y, maxY + height);
+
+		long[] oldSeen = seen, oldExplored = explored, oldWilderness = wilderness;
+		int oldX = originX, oldY = originY, oldWidth = width, oldHeight = height, oldWords = words;
+
+		allocate(minX, minY, maxX - minX + 1, maxY - minY + 1);
+
+		for(int j = 0; j < oldHeight; j++) {
+			int from = j * oldWords;
+			int to = (j + oldY - originY) * words;
+
+			for(int i = 0; i < oldWidth; i++) {
+				if(!get(oldSeen, from, i)) continue;
+
+				int bit = i + oldX - originX;
+				set(seen, to, bit, true);
+				set(explored, to, bit, get(oldExplored, from, i));
+				set(wilderness, to, bit, get(oldWilderness, from, i));
+			}
+		}
+
+		// Each cell of the tree starts as its own bit and passes its sum on to
+		// its parent along each row and then along each column.
+		for(int j = 0; j < height; j++) {
+			for(int i = 0; i < width; i++) {
+				if(get(explored, j * words, i)) tree[j * width + i]++;
+			}
+		}
+		for(int j = 0; j < height; j++) {
+			for(int i = 0; i < width; i++) {
+				int parent = i | (i + 1);
+				if(parent < width) tree[j * width + parent] += tree[j * width + i];
+			}
+		}
+		for(int j = 0; j < height; j++) {
+			int parent = j | (j + 1);
+			if(parent >= height) continue;
+			for(int i = 0; i < width; i++) tree[parent * width + i] += tree[j * width + i];
+		}
+	}
+}
@@ -6,10 +6,12 @@ import treasurehunt.constant.Direction;
 import treasurehunt.constant.Obstacle;
 import treasurehunt.constant.Tool;
 
-import java.util.HashMap;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.EnumMap;
 import java.util.HashSet;
-import java.util.Iterator;
 import java.util.LinkedList;
+import java.util.function.ToIntFunction;
 
 /**
  * The Map maintains a persistent model of the map that the agent is currently
@@ -24,34 +26,168 @@ import java.util.LinkedList;
  */
 public class Map
 {
+	// The defaults for the size of the player's view and of the largest map.
 	public static final int VIEW_WIDTH = 5;
 	public static final int VIEW_HEIGHT = 5;
 	public static final int MAX_WIDTH = 81;
 	public static final int MAX_HEIGHT = 81;
 
+	private static final Direction[] DIRECTIONS = Direction.values();
+
+	private final int viewWidth;
+	private final int viewHeight;
+	private final int maxWidth;
+	private final int maxHeight;
+
 	private int minX = 0; private int minY = 0;
 	private int maxX = 0; private int maxY = 0;
-	private int zones = 32;
 
-	private final HashMap<MapPosition, MapTile> tiles = new HashMap<>();
-	private final HashMap<Tool, HashSet<MapPosition>> tools = new HashMap<>();
-	private final HashMap<Obstacle, HashSet<MapPosition>> obstacles = new HashMap<>();
+	private final TileGrid tiles = new TileGrid();
+	private MapTile[] indexed = new MapTile[256];
+	private final ZoneSet zones = new ZoneSet();
+	private final ExploredBits sight = new ExploredBits();
+	private final TileStore store = new TileStore(tiles, zones, sight);
+	private final TileIndexSet frontier = new TileIndexSet();
+
+	// The tiles that explore() has marked but not yet looked out from.
+	private int[] exploring = new int[64];
+
+	private final StoneBridges stoneBridges = new StoneBridges(this);
+	private final ZoneGraph zoneGraph = new ZoneGraph(zones, stoneBridges);
+
+	// Counts every tile that is added or changed.
+	private int version = 0;
+
+	// Counts every change that could move a stone bridge, see coastVersion().
+	private int coastVersion = 0;
+
+	// The tiles with each tool on them, and with each obstacle that can be
+	// searched for.
+	private final EnumMap<Tool, TileBuckets> tools = new EnumMap<>(Tool.class);
+	private final EnumMap<Obstacle, TileBuckets> obstacles = new EnumMap<>(Obstacle.class);
 
 	private final Player player = new Player();
 
+	// Tables for turning a view of the last seen size to face NORTH, one for
+	// each direction the player can face, see Matrix.rotationTable().
+	private final int[][] viewTables = new int[Direction.values().length][];
+	private int viewRows = -1;
+	private int viewColumns = -1;
+
+	// The view being added by update(char[][]) and its size once turned.
+	private char[][] view = null;
+	private int[] viewTable = null;
+	private int turnedWidth = 0;
+	private int turnedHeight = 0;
+
+	// The bounds of the last view that was merged into the map.
+	private boolean merged = false;
+	private int mergedLeft, mergedTop, mergedRight, mergedBottom;
+
 	public Map()
 	{
-		tiles.put(player.getTile().getPosition(), player.getTile());
-		tools.put(Tool.GOLD, new HashSet<MapPosition>());
-		tools.put(Tool.KEY, new HashSet<MapPosition>());
-		tools.put(Tool.AXE, new HashSet<MapPosition>());
-		tools.put(Tool.STONE, new HashSet<MapPosition>());
-		obstacles.put(Obstacle.TREE, new HashSet<MapPosition>());
-		obstacles.put(Obstacle.DOOR, new HashSet<MapPosition>());
+		this(VIEW_WIDTH, VIEW_HEIGHT, MAX_WIDTH, MAX_HEIGHT);
+	}
+
+	/**
+	 * Creates a Map for a game with the given view and world size.
+	 *
+	 * @param viewWidth The width of the view the player is given each move.
+	 * @param viewHeight The height of the view the player is given each move.
+	 * @param maxWidth The width of the largest map that could be played on, at
+	 *                 most Short.MAX_VALUE.
+	 * @param maxHeight The height of the largest map that could be played on, at
+	 *                  most Short.MAX_VALUE.
+	 */
+	public Map(int viewWidth, int viewHeight, int maxWidth, int maxHeight)
+	{
+		// The TileStore and MapSnapshot keep coordinates as shorts.
+		if(maxWidth > Short.MAX_VALUE || maxHeight > Short.MAX_VALUE) {
+			throw new IllegalArgumentException("World size must be at most " + Short.MAX_VALUE + ": " + maxWidth + "x" + maxHeight);
+		}
+
+		this.viewWidth = viewWidth;
+		this.viewHeight = viewHeight;
+		this.maxWidth = maxWidth;
+		this.maxHeight = maxHeight;
+		MapPosition.reserve(maxWidth, maxHeight);
+
+		tools.put(Tool.GOLD, new TileBuckets());
+		tools.put(Tool.KEY, new TileBuckets());
+		tools.put(Tool.AXE, new TileBuckets());
+		tools.put(Tool.STONE, new TileBuckets());
+		obstacles.put(Obstacle.TREE, new TileBuckets());
+		obstacles.put(Obstacle.DOOR, new TileBuckets());
+
+		index(player.getTile());
+		tiles.put(player.getTile().getPosition(), player.getTile().getIndex());
+		player.getTile().explored();
 	}
 
 	public Player getPlayer() { return player; }
 
+	public int viewWidth() { return viewWidth; }
+	public int viewHeight() { return viewHeight; }
+	public int maxWidth() { return maxWidth; }
+	public int maxHeight() { return maxHeight; }
+	public ZoneGraph getZoneGraph() { return zoneGraph; }
+	public TileStore getTileStore() { return store; }
+	public StoneBridges getStoneBridges() { return stoneBridges; }
+
+	/**
+	 * The number of times a tile has been added to or changed on the map, so
+	 * anything worked out from the tiles can tell when it is out of date.
+	 */
+	public int version() { return version; }
+
+	/**
+	 * Records that a tile has been added or changed.
+	 */
+	void changed() { version++; }
+
+	/**
+	 * The number of times the water, the stones or the land zones of the map
+	 * have changed: water or a tile next to it has been added, a stone has
+	 * been put down or picked up, an obstacle has changed or a new tile has
+	 * joined two zones together. The StoneBridges only depend on those, so they
+	 * don't have to be worked out again for every other tile that is added.
+	 */
+	public int coastVersion() { return coastVersion; }
+
+	/**
+	 * Records that the tool on a tile has changed.
+	 */
+	void toolChanged(MapTile tile, Tool previous)
+	{
+		changed();
+		if(previous == Tool.STONE || tile.getTool() == Tool.STONE) coastVersion++;
+		track(tools.get(previous), tile, false);
+		track(tools.get(tile.getTool()), tile, true);
+	}
+
+	/**
+	 * Records that the obstacle of a tile has changed.
+	 */
+	void obstacleChanged(MapTile tile, Obstacle previous)
+	{
+		changed();
+		coastVersion++;
+		updateSight(tile);
+		track(obstacles.get(previous), tile, false);
+		track(obstacles.get(tile.getObstacle()), tile, true);
+	}
+
+	/**
+	 * Adds a tile to or removes it from one of the sets of tiles with a tool or
+	 * obstacle, if there is a set for that tool or obstacle.
+	 */
+	private void track(TileBuckets set, MapTile tile, boolean member)
+	{
+		if(set == null) return;
+		if(member) set.add(tile);
+		else set.remove(tile);
+	}
+
 	/**
 	 * Add a tile to a given position in the map. If a tile was already at that
 	 * position the previous tile is overwritten. Neighbours are automatically
@@ -67,93 +203,234 @@ public class Map
 		if(position.getY() < minY) minY = position.getY();
 		else if(position.getY() > maxY) maxY = position.getY();
 
-		if(tile.getTool() != Tool.NONE) tools.get(tile.getTool()).add(position);
-		else if(tile.getObstacle() == Obstacle.TREE || tile.getObstacle() == Obstacle.DOOR)
-			obstacles.get(tile.getObstacle()).add(position);
+		int x = position.getX();
+		int y = position.getY();
+
+		// A tile that is overwritten no longer has its tool or obstacle on the
+		// map.
+		MapTile overwritten = getTile(x, y);
+		if(overwritten != null) {
+			// The explored bit is kept by position, so the new tile would
+			// otherwise start off explored.
+			setExplored(overwritten, false);
+			frontier.remove(overwritten.getIndex());
+			coastVersion++;
+			track(tools.get(overwritten.getTool()), overwritten, false);
+			track(obstacles.get(overwritten.getObstacle()), overwritten, false);
+		}
 
-		MapPosition north = new MapPosition(position.getX(), position.getY()-1);
-		MapPosition east = new MapPosition(position.getX()+1, position.getY());
-		MapPosition south = new MapPosition(position.getX(), position.getY()+1);
-		MapPosition west = new MapPosition(position.getX()-1, position.getY());
+		// The TileStore finds the neighbours of a tile through the grid, so the
+		// tile is placed before its zone is joined to theirs.
+		index(tile);
+		tiles.put(position, tile.getIndex());
+		joinZones(tile);
+	}
 
-		if(tiles.containsKey(north)) {
-			tile.addNeighbour(Direction.NORTH, tiles.get(north));
-			tiles.get(north).addNeighbour(Direction.SOUTH, tile);
-		}
+	/**
+	 * Gives a new tile its index and a zone of its own.
+	 */
+	private void index(MapTile tile)
+	{
+		int index = zones.add();
+		if(index == indexed.length) indexed = Arrays.copyOf(indexed, index * 2);
+		indexed[index] = tile;
+		tile.setZones(this, zones, index);
+		changed();
+		updateSight(tile);
+		track(tools.get(tile.getTool()), tile, true);
+		track(obstacles.get(tile.getObstacle()), tile, true);
+		if(!tile.isWall() && !tile.isWilderness()) frontier.add(index);
+	}
 
-		if(tiles.containsKey(east)) {
-			tile.addNeighbour(Direction.EAST, tiles.get(east));
-			tiles.get(east).addNeighbour(Direction.WEST, tile);
-		}
+	/**
+	 * Marks the given tile as explored or unexplored. The ExploredBits are the
+	 * only record of which tiles are explored, so this is the only place they
+	 * are set, along with everything that is counted from them: the number of
+	 * explored tiles in the tile's zone and the frontier.
+	 */
+	void setExplored(MapTile tile, boolean explored)
+	{
+		if(explored == tile.isExplored()) return;
 
-		if(tiles.containsKey(south)) {
-			tile.addNeighbour(Direction.SOUTH, tiles.get(south));
-			tiles.get(south).addNeighbour(Direction.NORTH, tile);
-		}
+		MapPosition position = tile.getPosition();
+		sight.setExplored(position.getX(), position.getY(), explored);
+		zones.countExplored(tile.getIndex(), explored ? 1 : -1);
 
-		if(tiles.containsKey(west)) {
-			tile.addNeighbour(Direction.WEST, tiles.get(west));
-			tiles.get(west).addNeighbour(Direction.EAST, tile);
-		}
+		if(explored) frontier.remove(tile.getIndex());
+		else if(!tile.isWall() && !tile.isWilderness()) frontier.add(tile.getIndex());
+	}
 
-		for(MapTile neighbour : tile.getNeighbours()) {
-			if((tile.isWalkable() && neighbour.isWalkable())
-			|| (tile.isWater() && neighbour.isWater())
-			|| (tile.isWall() && neighbour.isWall())
-			|| (tile.isWilderness() && neighbour.isWilderness())) {
-				tile.setZone(neighbour.getZone());
-				break;
+	private void updateSight(MapTile tile)
+	{
+		MapPosition position = tile.getPosition();
+		sight.see(position.getX(), position.getY(), tile.isWilderness());
+	}
+
+	/**
+	 * Marks the given tile as explored along with every tile that is
+	 * equivalently explored, as described by MapTile.explored().
+	 *
+	 * From each newly explored tile the Map looks along its row and column for
+	 * an explored or WILDERNESS tile within the view, with every tile before
+	 * it already seen. If one is found then the tiles in between would show
+	 * nothing new and are marked as explored too, and looked out from in turn.
+	 * Marking only ever makes more lines end in an explored tile, so the same
+	 * tiles are marked whatever order they are looked out from in.
+	 */
+	void explore(MapTile start)
+	{
+		start.setExplored(true);
+
+		int pending = 0;
+		exploring[pending++] = start.getIndex();
+
+		while(pending > 0) {
+			MapTile tile = indexed[exploring[--pending]];
+			int x = tile.getPosition().getX();
+			int y = tile.getPosition().getY();
+
+			for(Direction direction : DIRECTIONS) {
+				boolean vertical = direction == Direction.NORTH || direction == Direction.SOUTH;
+				int steps = sight.reach(x, y, direction, vertical ? viewHeight : viewWidth);
+
+				int dx = direction == Direction.EAST ? 1 : direction == Direction.WEST ? -1 : 0;
+				int dy = direction == Direction.SOUTH ? 1 : direction == Direction.NORTH ? -1 : 0;
+
+				for(int step = 1; step < steps; step++) {
+					MapTile between = indexed[tiles.get(x + dx * step, y + dy * step)];
+					between.setExplored(true);
+
+					if(pending == exploring.length) exploring = Arrays.copyOf(exploring, pending * 2);
+					exploring[pending++] = between.getIndex();
+				}
 			}
 		}
+	}
 
-		if(tile.getZone() == -1) tile.setZone(++zones);
+	/**
+	 * Counts the positions around the given position that are either unexplored
+	 * or that have not been seen at all. The explored tiles are counted by the
+	 * ExploredBits as they are explored, so this takes the same time for any
+	 * radius.
+	 *
+	 * @param x The x coordinate of the centre.
+	 * @param y The y coordinate of the centre.
+	 * @param radius How far to look in each direction.
+	 * @return The number of unexplored positions in the (2r+1)-by-(2r+1) square
+	 * around the given position.
+	 */
+	public int numUnexploredNearby(int x, int y, int radius)
+	{
+		int side = 2 * radius + 1;
+		return side * side - sight.countExplored(x - radius, y - radius, x + radius, y + radius);
+	}
 
-		// Finds and merges and zone discrepancies between like neighbours.
-		for(MapTile neighbour : tile.getNeighbours()) {
-			if(((tile.isWalkable() && neighbour.isWalkable())
-			|| (tile.isWater() && neighbour.isWater())
-			|| (tile.isWall() && neighbour.isWall())
-			|| (tile.isWilderness() && neighbour.isWilderness()))
-			&& (tile.getZone() != neighbour.getZone())) {
-				mergeZones(tile);
+	/**
+	 * Gets every unexplored tile that the player can reach without going
+	 * between land and water, the same tiles an UnexploredFinder would find from
+	 * the player's tile. Only the frontier is looked at rather than every tile
+	 * the player can reach, so this costs the same no matter how much of the
+	 * map is already explored.
+	 *
+	 * @return All of the unexplored MapTile in the player's zone.
+	 */
+	public HashSet<MapTile> getUnexploredTiles()
+	{
+		MapTile origin = player.getTile();
+		HashSet<MapTile> unexplored = new HashSet<>();
+
+		for(int i = 0; i < frontier.size(); i++) {
+			MapTile tile = indexed[frontier.get(i)];
+			if(tile.connected(origin)) unexplored.add(tile);
+		}
+
+		return unexplored;
+	}
+
+	/**
+	 * Joins the zone of the given tile with the zones of any like neighbours and
+	 * records a border with every other neighbour.
+	 */
+	private void joinZones(MapTile tile)
+	{
+		boolean coast = tile.isWater();
+		int joined = 0;
+
+		for(Direction direction : DIRECTIONS) {
+			MapTile neighbour = tile.getNeighbour(direction);
+			if(neighbour == null) continue;
+			if(neighbour.isWater()) coast = true;
+
+			if(!sameZone(tile, neighbour)) zones.border(tile.getIndex(), neighbour.getIndex(), 1);
+			else if(tile.getZone() != neighbour.getZone()) {
+				zones.union(tile.getIndex(), neighbour.getIndex());
+				joined++;
 			}
 		}
 
-		tiles.put(position, tile);
+		// Joining the first zone only makes it bigger, any more join zones that
+		// were apart.
+		if(coast || joined > 1) coastVersion++;
 	}
 
 	/**
-	 * Combines zones that were discovered independantly but have been later found
-	 * to be the same zone.
+	 * Rebuilds the zone that the given tile was part of after the tile has
+	 * changed type, i.e. a stepping stone placed in the water. The old zone may
+	 * have been split in two by the change, so every tile in it is detached and
+	 * joined back up with its like neighbours.
 	 */
-	private void mergeZones(MapTile origin)
+	private void splitZone(MapTile origin)
 	{
-		int newZone = ++zones;
+		int zone = origin.getZone();
 
+		ArrayList<MapTile> members = new ArrayList<>();
 		HashSet<MapTile> expanded = new HashSet<>();
-		LinkedList<MapTile> unexpanded = new LinkedList<>();
 
+		members.add(origin);
 		expanded.add(origin);
-		unexpanded.add(origin);
 
-		MapTile tile;
+		for(int i = 0; i < members.size(); i++) {
+			for(Direction direction : DIRECTIONS) {
+				MapTile neighbour = members.get(i).getNeighbour(direction);
+				if(neighbour == null || expanded.contains(neighbour) || neighbour.getZone() != zone) continue;
+				expanded.add(neighbour);
+				members.add(neighbour);
+			}
+		}
 
-		while((tile = unexpanded.poll()) != null) {
-			tile.setZone(newZone);
-			for(MapTile neighbour : tile.getNeighbours()) {
-				if(!expanded.contains(neighbour)) {
-					if((neighbour.isWalkable() && origin.isWalkable())
-					|| (neighbour.isWater() && origin.isWater())
-					|| (neighbour.isWall() && origin.isWall())
-					|| (neighbour.isWilderness() && origin.isWilderness())) {
-						expanded.add(neighbour);
-						unexpanded.add(neighbour);
-					}
-				}
+		for(MapTile tile : members) {
+			for(Direction direction : DIRECTIONS) {
+				MapTile neighbour = tile.getNeighbour(direction);
+				if(neighbour != null && neighbour.getZone() != zone) zones.border(tile.getIndex(), neighbour.getIndex(), -1);
+			}
+		}
+
+		for(MapTile tile : members) tile.detachZone();
+
+		for(MapTile tile : members) {
+			for(Direction direction : DIRECTIONS) {
+				MapTile neighbour = tile.getNeighbour(direction);
+				if(neighbour == null) continue;
+
+				if(sameZone(tile, neighbour)) zones.union(tile.getIndex(), neighbour.getIndex());
+				// Borders between two members are only counted from one side.
+				else if(!expanded.contains(neighbour) || tile.getIndex() < neighbour.getIndex())
+					zones.border(tile.getIndex(), neighbour.getIndex(), 1);
 			}
 		}
 	}
 
+	/**
+	 * Whether two adjacent tiles are alike enough to belong to the same zone.
+	 */
+	private static boolean sameZone(MapTile a, MapTile b)
+	{
+		return (a.isWalkable() && b.isWalkable())
+		|| (a.isWater() && b.isWater())
+		|| (a.isWall() && b.isWall())
+		|| (a.isWilderness() && b.isWilderness());
+	}
+
 	/**
 	 * Updates the map with the new view assuming the view is orientated in
 	 * the direction that the player is currently facing and that the player
@@ -165,46 +442,51 @@ public class Map
 	 */
 	public void update(char[][] view)
 	{
-		tools.get(Tool.GOLD).remove(player.getTile().getPosition());
-		tools.get(Tool.KEY).remove(player.getTile().getPosition());
-		tools.get(Tool.AXE).remove(player.getTile().getPosition());
-		tools.get(Tool.STONE).remove(player.getTile().getPosition());
-
-		switch(player.getDirection()) {
-			case NORTH:
-				view = Matrix.transpose(view);
-				break;
-			case EAST:
-				view = Matrix.horizontalFlip(view);
-				break;
-			case SOUTH:
-				view = Matrix.transpose(view);
-				view = Matrix.horizontalFlip(view);
-				view = Matrix.verticalFlip(view);
-				break;
-			case WEST:
-				view = Matrix.verticalFlip(view);
-				break;
+		// The view is turned to face NORTH by looking up each world position in
+		// a rotation table rather than building a rotated copy of the view.
+		int rows = view.length;
+		int columns = view[0].length;
+
+		if(rows != viewRows || columns != viewColumns) {
+			for(Direction direction : Direction.values()) {
+				viewTables[direction.ordinal()] = Matrix.rotationTable(rows, columns, direction.ordinal());
+			}
+			viewRows = rows;
+			viewColumns = columns;
 		}
 
-		updateTile(player.getTile(), view, view.length/2, view[0].length/2);
+		boolean turned = player.getDirection() == Direction.EAST || player.getDirection() == Direction.WEST;
+		turnedWidth = turned ? rows : columns;
+		turnedHeight = turned ? columns : rows;
+		viewTable = viewTables[player.getDirection().ordinal()];
+		this.view = view;
 
-		// Finds and merges and zone discrepancies between like neighbours.
-		for(MapTile neighbour : player.getTile().getNeighbours()) {
-			if(((player.getTile().isWalkable() && neighbour.isWalkable())
-					|| (player.getTile().isWater() && neighbour.isWater())
-					|| (player.getTile().isWall() && neighbour.isWall())
-					|| (player.getTile().isWilderness() && neighbour.isWilderness()))
-					&& (player.getTile().getZone() != neighbour.getZone())) {
-				mergeZones(player.getTile());
-			}
-		}
+		MapPosition position = player.getTile().getPosition();
+		mergeView(position.getX() - turnedWidth/2, position.getY() - turnedHeight/2);
+		this.view = null;
 	}
+
+	/**
+	 * Gets the character of the view being added by update() at the given
+	 * position, where x and y are measured from the top left of the view once
+	 * it has been turned to face NORTH.
+	 */
+	private char viewAt(int x, int y)
+	{
+		int source = viewTable[y * turnedWidth + x];
+		return view[source / viewColumns][source % viewColumns];
+	}
+
 	public boolean update(Action action)
 	{
 		switch(action) {
 			case FORWARD:
+				MapTile next = player.getTile().getNeighbour(player.getDirection());
+				boolean water = next != null && next.isWater();
 				if(!player.forward()) return false;
+
+				// A stepping stone turns the water it was placed in into land.
+				if(water && !player.getTile().isWater()) splitZone(player.getTile());
 				break;
 			case LEFT:
 				player.turnLeft();
@@ -223,70 +505,55 @@ public class Map
 	}
 
 	/**
-	 * Helper function for update(). Recursively updates out from the player's
-	 * position adding any new tiles that have not been viewed before. Adding new
-	 * tiles is the only thing that needs to be done as the current state of each
-	 * tile is maintained on the client side once the tile has been added to the
-	 * map.
-	 * @param tile Current tile to have it's neighbours inspected for possible
-	 *             updates.
-	 * @param updated A set of all the tiles that have already been updated with
-	 *                the new view.
+	 * Helper function for update(). Adds a tile for every position in the view
+	 * that the map does not have a tile for yet. Adding new tiles is the only
+	 * thing that needs to be done as the current state of each tile is
+	 * maintained on the client side once the tile has been added to the map.
+	 *
+	 * Every position covered by the previous view already has a tile, so only
+	 * the positions of this view that fall outside of the previous one are
+	 * looked at, i.e. the single new row or column at the front of the view
+	 * after moving FORWARD and nothing at all after turning. The whole view is
+	 * only looked at for the first view or after the player has jumped to a
+	 * tile outside of the previous view.
+	 *
+	 * @param left The x coordinate of the left most column of the view.
+	 * @param top The y coordinate of the top most row of the view.
 	 */
-	private void updateTile(MapTile tile, HashSet<MapTile> updated, char[][] view, int x, int y)
+	private void mergeView(int left, int top)
 	{
-		updated.add(tile);
-		MapPosition position = tile.getPosition();
+		int right = left + turnedWidth - 1;
+		int bottom = top + turnedHeight - 1;
 
-		if(tile.getObstacle() == Obstacle.NONE) {
-			if(obstacles.get(Obstacle.TREE).contains(position))
-				obstacles.get(Obstacle.TREE).remove(position);
-			else if(obstacles.get(Obstacle.DOOR).contains(position))
-				obstacles.get(Obstacle.DOOR).remove(position);
-		}
+		boolean overlaps = merged && left <= mergedRight && right >= mergedLeft && top <= mergedBottom && bottom >= mergedTop;
 
-		if(y-1 >= 0 && !updated.contains(tile.north())) {
-			if(tile.north() == null) {
-				MapPosition northPosition = new MapPosition(position.getX(), position.getY()-1);
-				MapTile northTile = new MapTile(northPosition, view[x][y-1]);
-				addTile(northPosition, northTile);
+		for(int y = top; y <= bottom; y++) {
+			if(overlaps && y >= mergedTop && y <= mergedBottom) {
+				// Only the columns either side of the previous view are new.
+				for(int x = left; x < mergedLeft; x++) mergeTile(x, y, left, top);
+				for(int x = Math.max(left, mergedRight + 1); x <= right; x++) mergeTile(x, y, left, top);
 			}
-			updateTile(tile.north(), updated, view, x, y-1);
-		}
-
-		if(x+1 < view.length && !updated.contains(tile.east())) {
-			if(tile.east() == null) {
-				MapPosition eastPosition = new MapPosition(position.getX()+1, position.getY());
-				MapTile eastTile = new MapTile(eastPosition, view[x+1][y]);
-				addTile(eastPosition, eastTile);
-			}
-
-			updateTile(tile.east(), updated, view, x+1, y);
-		}
-
-		if(y+1 < view[x].length && !updated.contains(tile.south())) {
-			if(tile.south() == null) {
-				MapPosition southPosition = new MapPosition(position.getX(), position.getY()+1);
-				MapTile southTile = new MapTile(southPosition, view[x][y+1]);
-				addTile(southPosition, southTile);
+			else {
+				for(int x = left; x <= right; x++) mergeTile(x, y, left, top);
 			}
-
-			updateTile(tile.south(), updated, view, x, y+1);
 		}
 
-		if(x-1 >= 0 && !updated.contains(tile.west())) {
-			if(tile.west() == null) {
-				MapPosition westPosition = new MapPosition(position.getX()-1, position.getY());
-				MapTile westTile = new MapTile(westPosition, view[x-1][y]);
-				addTile(westPosition, westTile);
-			}
-			updateTile(tile.west(), updated, view, x-1, y);
-		}
+		merged = true;
+		mergedLeft = left;
+		mergedTop = top;
+		mergedRight = right;
+		mergedBottom = bottom;
 	}
-	private void updateTile(MapTile tile, char[][] view, int x, int y)
+
+	/**
+	 * Adds a tile at the given position from the view if there isn't one yet.
+	 */
+	private void mergeTile(int x, int y, int left, int top)
 	{
-		HashSet<MapTile> updated = new HashSet<>();
-		updateTile(tile, updated, view, x, y);
+		if(tiles.contains(x, y)) return;
+
+		MapPosition position = MapPosition.of(x, y);
+		addTile(position, new MapTile(position, viewAt(x - left, y - top)));
 	}
 
 	/**
@@ -298,30 +565,42 @@ public class Map
 	 */
 	public MapTile getTile(MapPosition position)
 	{
-		return tiles.get(position);
+		return getTile(position.getX(), position.getY());
+	}
+	public MapTile getTile(int x, int y)
+	{
+		int index = tiles.get(x, y);
+		return index == -1 ? null : indexed[index];
 	}
 
+	/**
+	 * Gets the tile with the given index.
+	 *
+	 * @param index The index of the tile, see MapTile.getIndex().
+	 * @return The tile with the given index.
+	 */
+	public MapTile getTileByIndex(int index) { return indexed[index]; }
+
 	/**
 	 public MapTile getTile(MapPosition position) { return tiles.get(position); }
 
 	 /**
-	 * Returns all tiles that currently have the given tool on them.
+	 * Returns all tiles that currently have the given tool on them, nearest to
+	 * the player first.
 	 *
 	 * @param tool treasurehunt.constant.Tool that you are searching for.
 	 * @return An array of tiles that have the given tool currently on them.
 	 */
 	public MapTile[] getTiles(Tool tool)
 	{
-		MapPosition[] positions = getPositions(tool);
-		MapTile[] tiles = new MapTile[positions.length];
-		for(int i = 0; i < positions.length; i++) tiles[i] = getTile(positions[i]);
-		return tiles;
+		TileBuckets set = tools.get(tool);
+		return set == null ? new MapTile[0] : nearest(set, set.size(), this::steps);
 	}
 
 	/**
-	 * Returns all tiles that currently have the given obstacle on them.
-	 * Only TREE and DOOR obstacles can be searched for. All other obstacles will
-	 * automatically return null.
+	 * Returns all tiles that currently have the given obstacle on them, nearest
+	 * to the player first. Only TREE and DOOR obstacles can be searched for.
+	 * All other obstacles will automatically return null.
 	 *
 	 * @param obstacle The obstacle to search for (either TREE or DOOR).
 	 * @return An array of all the tiles that currently have the given obstacle
@@ -329,13 +608,77 @@ public class Map
 	 */
 	public MapTile[] getTiles(Obstacle obstacle)
 	{
-		MapPosition[] positions = getPositions(obstacle);
-		if(positions == null) return null;
-		MapTile[] tiles = new MapTile[positions.length];
-		for(int i = 0; i < positions.length; i++) tiles[i] = getTile(positions[i]);
+		TileBuckets set = obstacles.get(obstacle);
+		return set == null ? null : nearest(set, set.size(), this::steps);
+	}
+
+	/**
+	 * Returns the tiles that currently have the given tool on them that are
+	 * nearest to the player, without looking at every tile with the tool.
+	 *
+	 * @param tool The tool to search for.
+	 * @param count The most tiles to return.
+	 * @param distance The distance from the player to a tile. It must never be
+	 *                 less than the number of steps from the player's tile to
+	 *                 the tile, i.e. Heuristic.distance().
+	 * @return Up to count tiles in order of their distance and then of their
+	 * index.
+	 */
+	public MapTile[] getNearestTiles(Tool tool, int count, ToIntFunction<MapTile> distance)
+	{
+		TileBuckets set = tools.get(tool);
+		return set == null ? new MapTile[0] : nearest(set, count, distance);
+	}
+
+	/**
+	 * Like getNearestTiles(Tool, ...) but for a TREE or DOOR obstacle. All other
+	 * obstacles will automatically return null.
+	 */
+	public MapTile[] getNearestTiles(Obstacle obstacle, int count, ToIntFunction<MapTile> distance)
+	{
+		TileBuckets set = obstacles.get(obstacle);
+		return set == null ? null : nearest(set, count, distance);
+	}
+
+	/**
+	 * The number of tiles that currently have the given tool on them.
+	 */
+	public int numTiles(Tool tool)
+	{
+		TileBuckets set = tools.get(tool);
+		return set == null ? 0 : set.size();
+	}
+
+	/**
+	 * The number of tiles that currently have the given obstacle on them. Only
+	 * TREE and DOOR obstacles are counted, all others are 0.
+	 */
+	public int numTiles(Obstacle obstacle)
+	{
+		TileBuckets set = obstacles.get(obstacle);
+		return set == null ? 0 : set.size();
+	}
+
+	private MapTile[] nearest(TileBuckets set, int count, ToIntFunction<MapTile> distance)
+	{
+		MapPosition from = player.getTile().getPosition();
+		int[] nearest = set.nearest(from.getX(), from.getY(), count, index -> distance.applyAsInt(indexed[index]));
+
+		MapTile[] tiles = new MapTile[nearest.length];
+		for(int i = 0; i < nearest.length; i++) tiles[i] = indexed[nearest[i]];
 		return tiles;
 	}
 
+	/**
+	 * The number of steps from the player's tile to the given tile if nothing
+	 * was in the way.
+	 */
+	private int steps(MapTile tile)
+	{
+		MapPosition from = player.getTile().getPosition();
+		return Math.abs(tile.getPosition().getX() - from.getX()) + Math.abs(tile.getPosition().getY() - from.getY());
+	}
+
 	/**
 	 * Get the MapPosition(s) of a certain tool. Returns all MapPosition(s) that
 	 * have the given tool on the regardless of player position or ability to get
@@ -343,14 +686,11 @@ public class Map
 	 *
 	 * @param tool The type of tool to get the MapPositions for.
 	 * @return An array of MapPosition which have the tool on the respective
-	 * MapPosition's Tile.
+	 * MapPosition's Tile, nearest to the player first.
 	 */
 	public MapPosition[] getPositions(Tool tool)
 	{
-		MapPosition[] positions = new MapPosition[tools.get(tool).size()];
-		Iterator iterator =  tools.get(tool).iterator();
-		for(int i = 0; i < positions.length; i++) positions[i] = (MapPosition) iterator.next();
-		return positions;
+		return positions(getTiles(tool));
 	}
 
 	/**
@@ -362,16 +702,28 @@ public class Map
 	 *
 	 * @param obstacle The type of obstacle to get the MapPositions for.
 	 * @return An array of MapPosition which have the obstacle on the respective
-	 * MapPosition's Tile.
+	 * MapPosition's Tile, nearest to the player first, or null if the obstacle
+	 * can't be searched for.
 	 */
 	public MapPosition[] getPositions(Obstacle obstacle)
 	{
-		MapPosition[] positions = new MapPosition[obstacles.get(obstacle).size()];
-		Iterator iterator =  obstacles.get(obstacle).iterator();
-		for(int i = 0; i < positions.length; i++) positions[i] = (MapPosition) iterator.next();
+		MapTile[] tiles = getTiles(obstacle);
+		return tiles == null ? null : positions(tiles);
+	}
+
+	private static MapPosition[] positions(MapTile[] tiles)
+	{
+		MapPosition[] positions = new MapPosition[tiles.length];
+		for(int i = 0; i < tiles.length; i++) positions[i] = tiles[i].getPosition();
 		return positions;
 	}
 
+	/**
+	 * The number of tiles on the map. Every tile has an index from 0 up to, but
+	 * not including, this number.
+	 */
+	public int numTiles() { return zones.numTiles(); }
+
 	public int minX() { return minX; }
 	public int minY() { return minY; }
 	public int maxX() { return maxX; }
@@ -396,10 +748,10 @@ public class Map
 		for(int j = minY; j <= maxY; j++) {
 			string.append("|");
 			for(int i = minX; i <= maxX; i++) {
-				tile = tiles.get(new MapPosition(i, j));
+				tile = getTile(i, j);
 				if(tile == null) string.append("?");
 				else if(tile.getTool() != Tool.NONE) string.append(Tool.toKey(tile.getTool()));
-				else if(tile.getPosition() == player.getTile().getPosition()) {
+				else if(tile == player.getTile()) {
 					switch(player.getDirection()) {
 						case NORTH: string.append("^"); break;
 						case EAST: string.append(">"); break;
@@ -6,30 +6,139 @@ package treasurehunt.map;
  *
  * MapPosition may be used as a comparator to find matching Tiles that have the
  * same MapPosition.
+ *
+ * Positions within reach of the origin on the largest map being played are
+ * interned, so MapPosition.of() should be preferred over the constructor to
+ * avoid allocating a new position for every lookup. Each Map reserves its own
+ * bounds when it is created.
  */
 public class MapPosition
 {
+	// Interned positions are kept in square chunks of CHUNK_SIZE a side, each
+	// only allocated once a position inside it is asked for, so the cache can
+	// cover a world thousands of tiles a side without paying for the parts of
+	// it that are never visited.
+	private static final int CHUNK_BITS = 6;
+	private static final int CHUNK_SIZE = 1 << CHUNK_BITS;
+	private static final int CHUNK_MASK = CHUNK_SIZE - 1;
+
+	/**
+	 * The chunks covering the reserved bounds, row-major. A chunk or position
+	 * may be created twice if two threads ask for it at once, which only costs
+	 * the allocation since equal positions are interchangeable.
+	 */
+	private static final class Cache
+	{
+		// The first chunk and the number of chunks across and down.
+		private final int minChunkX, minChunkY;
+		private final int width, height;
+		private final MapPosition[][] chunks;
+
+		private Cache(int radiusX, int radiusY)
+		{
+			this.minChunkX = -radiusX >> CHUNK_BITS;
+			this.minChunkY = -radiusY >> CHUNK_BITS;
+			this.width = (radiusX >> CHUNK_BITS) - minChunkX + 1;
+			this.height = (radiusY >> CHUNK_BITS) - minChunkY + 1;
+			this.chunks = new MapPosition[width * height][];
+		}
+
+		private boolean covers(int chunkX, int chunkY)
+		{
+			return chunkX >= minChunkX && chunkY >= minChunkY && chunkX < minChunkX + width && chunkY < minChunkY + height;
+		}
+	}
+
+	// The player can start anywhere on a map, so relative to the origin the
+	// coordinates range over twice the map size in each direction.
+	private static volatile Cache cache = new Cache(Map.MAX_WIDTH - 1, Map.MAX_HEIGHT - 1);
+
 	private final int x;
 	private final int y;
-	
+
 	public MapPosition(int x, int y)
 	{
 		this.x = x;
 		this.y = y;
 	}
-	
+
+	/**
+	 * Makes sure positions on a map of the given size are interned wherever the
+	 * player starts on it. The cache only ever grows.
+	 *
+	 * @param maxWidth The width of the largest map that could be played on.
+	 * @param maxHeight The height of the largest map that could be played on.
+	 */
+	public static synchronized void reserve(int maxWidth, int maxHeight)
+	{
+		Cache old = cache;
+		int radiusX = maxWidth - 1, radiusY = maxHeight - 1;
+		if(old.covers(-radiusX >> CHUNK_BITS, -radiusY >> CHUNK_BITS) && old.covers(radiusX >> CHUNK_BITS, radiusY >> CHUNK_BITS)) return;
+
+		Cache grown = new Cache(
+				Math.max(radiusX, -old.minChunkX << CHUNK_BITS),
+				Math.max(radiusY, -old.minChunkY << CHUNK_BITS));
+
+		for(int j = 0; j < old.height; j++) {
+			int to = (j + old.minChunkY - grown.minChunkY) * grown.width + (old.minChunkX - grown.minChunkX);
+			System.arraycopy(old.chunks, j * old.width, grown.chunks, to, old.width);
+		}
+
+		cache = grown;
+	}
+
+	/**
+	 * Gets the canonical MapPosition for the given coordinates. Positions inside
+	 * the reserved bounds are only ever created once, any other position is
+	 * created on demand.
+	 *
+	 * @param x The x coordinate.
+	 * @param y The y coordinate.
+	 * @return A MapPosition with the given coordinates.
+	 */
+	public static MapPosition of(int x, int y)
+	{
+		Cache cache = MapPosition.cache;
+		int chunkX = x >> CHUNK_BITS;
+		int chunkY = y >> CHUNK_BITS;
+		if(!cache.covers(chunkX, chunkY)) return new MapPosition(x, y);
+
+		int index = (chunkY - cache.minChunkY) * cache.width + (chunkX - cache.minChunkX);
+		MapPosition[] chunk = cache.chunks[index];
+		if(chunk == null) cache.chunks[index] = chunk = new MapPosition[CHUNK_SIZE * CHUNK_SIZE];
+
+		int offset = (y & CHUNK_MASK) << CHUNK_BITS | (x & CHUNK_MASK);
+		MapPosition position = chunk[offset];
+		if(position == null) chunk[offset] = position = new MapPosition(x, y);
+		return position;
+	}
+
 	public int getX() { return x; }
 	public int getY() { return y; }
 	public int[] toArray() { return new int[] {x, y}; };
-	
+
+	/**
+	 * Packs both coordinates into a single long with x in the high 32 bits and
+	 * y in the low 32 bits. Every position has a distinct key.
+	 *
+	 * @return The packed key of this position.
+	 */
+	public long key() { return key(x, y); }
+	public static long key(int x, int y) { return ((long) x << 32) | (y & 0xFFFFFFFFL); }
+
 	public boolean equals(Object object)
 	{
+		if(this == object) return true;
+		if(!(object instanceof MapPosition)) return false;
 		MapPosition position = (MapPosition) object;
 		return x == position.getX() && y == position.getY();
 	}
-	
+
 	public int hashCode()
 	{
-		return x*100 + y;
+		// Multiplicative hashing of the packed key spreads neighbouring and
+		// negative coordinates over the whole int range.
+		long hash = key() * 0x9E3779B97F4A7C15L;
+		return (int) (hash ^ (hash >>> 32));
 	}
 }
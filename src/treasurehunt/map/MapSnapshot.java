@@ -0,0 +1,136 @@
+package treasurehunt.map;
+
+import treasurehunt.constant.Direction;
+import treasurehunt.constant.Obstacle;
+import treasurehunt.constant.Tool;
+
+import java.io.*;
+
+/**
+ * MapSnapshot saves a Map, part way through a game, to a compact binary format
+ * and loads it back again, so the exact same state can be planned on again
+ * without replaying every move that led up to it.
+ *
+ * A snapshot holds the size of the view and the largest map the Map was made
+ * for, then every tile in the order it was added to the Map, along with the
+ * player's tile, direction, inventory and whether they are sailing. Each
+ * tile takes five bytes: its x and y coordinates and one byte holding its
+ * obstacle, tool and whether it has been explored. Zones, neighbours and the
+ * lists of tools and obstacles are not saved as they are rebuilt when the
+ * tiles are added back in the same order.
+ */
+public class MapSnapshot
+{
+	private static final int MAGIC = 0x54484d53; // "THMS"
+	private static final int VERSION = 2;
+
+	private static final Direction[] DIRECTIONS = Direction.values();
+	private static final Obstacle[] OBSTACLES = Obstacle.values();
+	private static final Tool[] TOOLS = Tool.values();
+
+	/**
+	 * Writes a snapshot of the given Map.
+	 *
+	 * @param map The Map to save.
+	 * @param out Where to write the snapshot to.
+	 * @throws IOException If the snapshot could not be written.
+	 */
+	public static void write(Map map, DataOutput out) throws IOException
+	{
+		Player player = map.getPlayer();
+
+		out.writeInt(MAGIC);
+		out.writeByte(VERSION);
+		out.writeShort(map.viewWidth());
+		out.writeShort(map.viewHeight());
+		out.writeInt(map.maxWidth());
+		out.writeInt(map.maxHeight());
+		out.writeInt(map.numTiles());
+
+		// The TileStore already packs the obstacle and tool the same way.
+		TileStore store = map.getTileStore();
+		for(int i = 0; i < map.numTiles(); i++) {
+			MapPosition position = map.getTileByIndex(i).getPosition();
+			out.writeShort(position.getX());
+			out.writeShort(position.getY());
+			out.writeByte(store.type(i) | (store.isExplored(i) ? 1 << 6 : 0));
+		}
+
+		out.writeInt(player.getTile().getIndex());
+		out.writeByte(player.getDirection().ordinal());
+		out.writeBoolean(player.isSailing());
+		for(Tool tool : TOOLS) out.writeShort(player.numOfTool(tool));
+	}
+
+	/**
+	 * Reads a snapshot back into a new Map.
+	 *
+	 * @param in Where to read the snapshot from.
+	 * @return A Map in the same state as the Map the snapshot was taken of.
+	 * @throws IOException If the snapshot could not be read or is not a
+	 * snapshot.
+	 */
+	public static Map read(DataInput in) throws IOException
+	{
+		if(in.readInt() != MAGIC) throw new IOException("Not a map snapshot.");
+		int version = in.readUnsignedByte();
+		if(version != 1 && version != VERSION) throw new IOException("Unsupported map snapshot version: " + version + ".");
+
+		// Version 1 snapshots were all taken with the default sizes.
+		Map map = version == 1 ? new Map()
+				: new Map(in.readShort(), in.readShort(), in.readInt(), in.readInt());
+		int numTiles = in.readInt();
+
+		for(int i = 0; i < numTiles; i++) {
+			int x = in.readShort();
+			int y = in.readShort();
+			int type = in.readUnsignedByte();
+
+			Obstacle obstacle = OBSTACLES[type & 7];
+			Tool tool = TOOLS[type >> 3 & 7];
+
+			// The first tile is the one the player started on, which every Map
+			// already has.
+			MapTile tile = map.getTileByIndex(0);
+			if(i == 0) {
+				tile.setObstacle(obstacle);
+				tile.setTool(tool);
+			}
+			else {
+				MapPosition position = MapPosition.of(x, y);
+				tile = new MapTile(position, obstacle, tool);
+				map.addTile(position, tile);
+			}
+
+			tile.setExplored((type & 1 << 6) != 0);
+		}
+
+		Player player = map.getPlayer();
+		player.setTile(map.getTileByIndex(in.readInt()));
+		player.setDirection(DIRECTIONS[in.readUnsignedByte()]);
+		player.setSailing(in.readBoolean());
+		for(Tool tool : TOOLS) player.setNumOfTool(tool, in.readShort());
+
+		return map;
+	}
+
+	/**
+	 * Saves a snapshot of the given Map to a file.
+	 */
+	public static void save(Map map, File file) throws IOException
+	{
+		try(DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file)))) {
+			write(map, out);
+		}
+	}
+
+	/**
+	 * Loads a Map from a snapshot file.
+	 */
+	public static Map load(File file) throws IOException
+	{
+		try(DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)))) {
+			return read(in);
+		}
+	}
+}
@@ -4,40 +4,41 @@ import treasurehunt.constant.Direction;
 import treasurehunt.constant.Obstacle;
 import treasurehunt.constant.Tool;
 
-import java.util.HashMap;
-import java.util.HashSet;
-import java.util.Iterator;
-import java.util.LinkedList;
-
 /**
  * A MapTile represents one position on the Map. Each MapTile holds all the
  * properties of that position such as the type of obstacle on the tile, as well
  * as if the tile contains a tool.
  *
- * The MapTile also is able to store neighbours (adjacent tiles).
+ * The MapTile also is able to find its neighbours (adjacent tiles) in each
+ * Direction with getNeighbour(), which doesn't allocate anything.
  *
  * Each MapTile is part of a zone. A zone is denoted by a group of joined tiles
- * that each share the same obstacle.
+ * that each share the same obstacle. Zones and their totals (size, reward, tools
+ * and obstacles) are kept by the Map the tile is part of, so the zone queries
+ * on a MapTile do not need to search the zone.
  *
  * MapTile can be set to explored and will automatically find all other tiles
  * in its vicinity that are equivalently explored.
+ *
+ * A MapTile is only a view onto its entries in a TileStore: its position,
+ * obstacle, tool, exploration and neighbours. Until it is added to a Map it has
+ * a TileStore of its own with a single entry, which is moved into the Map's
+ * TileStore when it is added, so the MapTile never holds a copy that could
+ * disagree with it. A tile can only be explored once it is part of a Map.
  */
 public class MapTile 
 {
-	private final MapPosition position;
+	private Map map = null;
+	private ZoneSet zones = null;
+	private TileStore store;
+	private int index = 0;
 	
-	private Obstacle obstacle = Obstacle.NONE;
-	private Tool tool = Tool.NONE;
-	private boolean explored = false;
-	private int zone = -1;
-	
-	private final HashMap<Direction, MapTile> neighbours = new HashMap<>();
+	private static final Direction[] DIRECTIONS = Direction.values();
 	
 	public MapTile(MapPosition position, Obstacle obstacle, Tool tool)
 	{
-		this.position = position;
-		this.obstacle = obstacle;
-		this.tool = tool;
+		this.store = new TileStore(1);
+		store.add(0, position.getX(), position.getY(), obstacle, tool);
 	}
 	public MapTile(MapPosition position, char type)
 	{
@@ -47,7 +48,7 @@ public class MapTile
 	public MapTile(MapPosition position, Tool tool) { this(position, Obstacle.NONE, tool); }
 	public MapTile(MapPosition position) { this(position, Obstacle.NONE, Tool.NONE); }
 
-	public boolean isExplored() { return explored; }
+	public boolean isExplored() { return store.isExplored(index); }
 
 	/**
 	 An explored tile is one that either the player has stood in or that if
@@ -58,63 +59,88 @@ public class MapTile
 	 around this tile that are equivalently explored (that is, even if the
 	 player has not stood in that tile before, if they were to they would not
 	 gain any new information for doing so.
+
+	 The search is made by the Map, a row or column at a time, so it takes the
+	 same stack no matter how many tiles turn out to be explored.
 	 */
 	public void explored()
 	{
-		explored = true;
-		updateExplored(Direction.NORTH, neighbours.get(Direction.NORTH), Map.VIEW_HEIGHT);
-		updateExplored(Direction.EAST, neighbours.get(Direction.EAST), Map.VIEW_WIDTH);
-		updateExplored(Direction.SOUTH, neighbours.get(Direction.SOUTH), Map.VIEW_HEIGHT);
-		updateExplored(Direction.WEST, neighbours.get(Direction.WEST), Map.VIEW_WIDTH);
+		if(map != null) map.explore(this);
 	}
 
 	/**
-	 * Helper function for explored() used to recursively find all tiles that are
-	 * considered explored based on the definition given in the explored()
-	 * description.
+	 * Sets whether this tile is explored without finding any other tiles that
+	 * are equivalently explored, i.e. when restoring a MapSnapshot.
 	 */
-	private boolean updateExplored(Direction direction, MapTile tile, int distance)
+	void setExplored(boolean explored)
 	{
-		if(distance <= 0 || tile == null) return false;
-		if(tile.isExplored() || tile.getObstacle() == Obstacle.WILDERNESS) return true;
-		if(updateExplored(direction, tile.getNeighbour(direction), distance - 1)) {
-			tile.explored();
-			return true;
-		}
-		else return false;
+		if(map != null) map.setExplored(this, explored);
 	}
 
-	public int getZone() { return zone; }
-	public void setZone(int zone) { this.zone = zone; }
+	/**
+	 * Gets the zone this tile is part of. Zones are maintained by the Map the
+	 * tile has been added to, so a tile that is not part of a Map has no zone.
+	 *
+	 * @return The identifier of this tile's zone or -1 if it has no zone.
+	 */
+	public int getZone() { return zones == null ? -1 : zones.find(index); }
 
 	/**
-	 * Finds the number of tiles that are part of the same zone.
+	 * Gets the index of this tile in the Map it has been added to. Indices are
+	 * handed out in the order tiles are added, starting at 0.
 	 *
-	 * @return The number of MapTile that are part of the same zone.
+	 * @return The index of this tile or -1 if it is not part of a Map.
 	 */
-	public int zoneSize()
-	{
-		int count = 0;
+	public int getIndex() { return map == null ? -1 : index; }
 
-		LinkedList<MapTile> unexpanded = new LinkedList<>();
-		HashSet<MapTile> expanded = new HashSet<>();
+	/**
+	 * Adds this tile to the given Map's zones under the given index, moves its
+	 * obstacle, tool and exploration into the Map's TileStore and counts them
+	 * towards its new zone.
+	 */
+	void setZones(Map map, ZoneSet zones, int index)
+	{
+		TileStore target = map.getTileStore();
+		target.add(index, store.x(this.index), store.y(this.index), getObstacle(), getTool());
+
+		this.map = map;
+		this.zones = zones;
+		this.store = target;
+		this.index = index;
+		count(1);
+	}
 
-		unexpanded.add(this);
-		expanded.add(this);
+	/**
+	 * Moves this tile out of its current zone into a zone of its own, taking its
+	 * tool, obstacle and exploration with it.
+	 */
+	void detachZone()
+	{
+		count(-1);
+		zones.detach(index);
+		count(1);
+	}
 
-		MapTile tile;
+	private void count(int amount)
+	{
+		zones.count(index, getTool(), amount);
+		zones.count(index, getObstacle(), amount);
+		if(isExplored()) zones.countExplored(index, amount);
+	}
 
-		while((tile = unexpanded.poll()) != null) {
-			for(MapTile neighbour : tile.getNeighbours()) {
-				if(expanded.contains(neighbour) || zone != neighbour.getZone()) continue;
-				unexpanded.add(neighbour);
-				expanded.add(neighbour);
-			}
-			count++;
-		}
+	/**
+	 * Finds the number of tiles that are part of the same zone.
+	 *
+	 * @return The number of MapTile that are part of the same zone.
+	 */
+	public int zoneSize() { return zones.zoneSize(index); }
 
-		return count;
-	}
+	/**
+	 * Finds the number of explored tiles that are part of the same zone.
+	 *
+	 * @return The number of explored MapTile that are part of the same zone.
+	 */
+	public int numExploredInZone() { return zones.numExplored(index); }
 
 	/**
 	 * Gets all of the tiles that are part of the same zone.
@@ -123,30 +149,29 @@ public class MapTile
 	 */
 	public MapTile[] zoneTiles()
 	{
-		LinkedList<MapTile> unexpanded = new LinkedList<>();
-		HashSet<MapTile> expanded = new HashSet<>();
+		if(map == null) return new MapTile[] { this };
 
-		unexpanded.add(this);
-		expanded.add(this);
+		int zone = getZone();
 
-		MapTile tile;
+		// The set keeps its members in the order they were added, so it is
+		// also the queue of tiles left to expand.
+		TileIndexSet expanded = new TileIndexSet();
+		expanded.add(index);
 
-		while((tile = unexpanded.poll()) != null) {
-			for(MapTile neighbour : tile.getNeighbours()) {
-				if(expanded.contains(neighbour) || zone != neighbour.getZone()) continue;
-				unexpanded.add(neighbour);
+		for(int i = 0; i < expanded.size(); i++) {
+			int tile = expanded.get(i);
+
+			for(int direction = 0; direction < DIRECTIONS.length; direction++) {
+				int neighbour = store.neighbour(tile, direction);
+				if(neighbour == -1 || expanded.contains(neighbour) || store.zone(neighbour) != zone) continue;
 				expanded.add(neighbour);
 			}
 		}
 
-		MapTile[] targets = new MapTile[expanded.size()];
-		Iterator iterator = expanded.iterator();
-
-		for(int i = 0; i < targets.length; i++) {
-			targets[i] = (MapTile) iterator.next();
-		}
+		MapTile[] tiles = new MapTile[expanded.size()];
+		for(int i = 0; i < tiles.length; i++) tiles[i] = map.getTileByIndex(expanded.get(i));
 
-		return targets;
+		return tiles;
 	}
 
 	/**
@@ -156,29 +181,7 @@ public class MapTile
 	 * @return The reward value of all of the items on the zone that this tile
 	 * is a part of.
 	 */
-	public int zoneReward()
-	{
-		int reward = 0;
-
-		LinkedList<MapTile> unexpanded = new LinkedList<>();
-		HashSet<MapTile> expanded = new HashSet<>();
-
-		unexpanded.add(this);
-		expanded.add(this);
-
-		MapTile tile;
-
-		while((tile = unexpanded.poll()) != null) {
-			for(MapTile neighbour : tile.getNeighbours()) {
-				if(expanded.contains(neighbour) || zone != neighbour.getZone()) continue;
-				unexpanded.add(neighbour);
-				expanded.add(neighbour);
-			}
-			reward += tile.getTool().reward();
-		}
-
-		return reward;
-	}
+	public int zoneReward() { return zones.zoneReward(index); }
 
 	/**
 	 * Finds the number of different zones that are connected to this zone.
@@ -186,56 +189,9 @@ public class MapTile
 	 * @return The number of different zones that border the zone that this
 	 * MapTile is a part of.
 	 */
-	public int numAdjacentZones()
-	{
-		LinkedList<MapTile> unexpanded = new LinkedList<>();
-		HashSet<MapTile> expanded = new HashSet<>();
-		HashSet<Integer> adjacentZones = new HashSet<>();
-
-		unexpanded.add(this);
-		expanded.add(this);
-
-		MapTile tile;
-
-		while((tile = unexpanded.poll()) != null) {
-			for(MapTile neighbour : tile.getNeighbours()) {
-				if(expanded.contains(neighbour)) continue;
-				if(zone != neighbour.getZone()) {
-					adjacentZones.add(neighbour.getZone());
-					continue;
-				}
-				unexpanded.add(neighbour);
-				expanded.add(neighbour);
-			}
-		}
+	public int numAdjacentZones() { return zones.numAdjacentZones(index); }
 
-		return adjacentZones.size();
-	}
-
-	public boolean isAdjacentTo(int zone)
-	{
-		LinkedList<MapTile> unexpanded = new LinkedList<>();
-		HashSet<MapTile> expanded = new HashSet<>();
-
-		unexpanded.add(this);
-		expanded.add(this);
-
-		MapTile tile;
-
-		while((tile = unexpanded.poll()) != null) {
-			for(MapTile neighbour : tile.getNeighbours()) {
-				if(expanded.contains(neighbour)) continue;
-				if(this.zone != neighbour.getZone()) {
-					if(neighbour.getZone() == zone) return true;
-					continue;
-				}
-				unexpanded.add(neighbour);
-				expanded.add(neighbour);
-			}
-		}
-
-		return false;
-	}
+	public boolean isAdjacentTo(int zone) { return zones.isAdjacent(index, zone); }
 
 	/**
 	 * Finds whether the zone contains a tree.
@@ -248,60 +204,14 @@ public class MapTile
 		return numObstaclesInZone(Obstacle.TREE) > 0;
 	}
 
-	public int numObstaclesInZone(Obstacle obstacle)
-	{
-		int count = 0;
-
-		LinkedList<MapTile> unexpanded = new LinkedList<>();
-		HashSet<MapTile> expanded = new HashSet<MapTile>();
-
-		unexpanded.add(this);
-		expanded.add(this);
-
-		MapTile tile;
-
-		while((tile = unexpanded.poll()) != null) {
-			for(MapTile neighbour : tile.getNeighbours()) {
-				if(zone != neighbour.getZone()) continue;
-				if(neighbour.getObstacle() == obstacle) count++;
-				if(expanded.contains(neighbour)) continue;
-				expanded.add(neighbour);
-				unexpanded.add(neighbour);
-			}
-		}
-
-		return count;
-	}
+	public int numObstaclesInZone(Obstacle obstacle) { return zones.numObstacles(index, obstacle); }
 
 	public boolean zoneContainsTool(Tool tool)
 	{
 		return numToolsInZone(tool) > 0;
 	}
 
-	public int numToolsInZone(Tool tool)
-	{
-		int count = 0;
-
-		LinkedList<MapTile> unexpanded = new LinkedList<>();
-		HashSet<MapTile> expanded = new HashSet<MapTile>();
-
-		unexpanded.add(this);
-		expanded.add(this);
-
-		MapTile tile;
-
-		while((tile = unexpanded.poll()) != null) {
-			for(MapTile neighbour : tile.getNeighbours()) {
-				if(zone != neighbour.getZone()) continue;
-				if(neighbour.getTool() == tool) count++;
-				if(expanded.contains(neighbour)) continue;
-				expanded.add(neighbour);
-				unexpanded.add(neighbour);
-			}
-		}
-
-		return count;
-	}
+	public int numToolsInZone(Tool tool) { return zones.numTools(index, tool); }
 
 	/**
 	 * Checks if the given MapTile is part of the same zone as this MapTile. If
@@ -313,56 +223,88 @@ public class MapTile
 	 */
 	public boolean connected(MapTile tile)
 	{
-		if(zone == -1) return false;
-		return zone == tile.getZone();
+		if(zones == null || tile.zones != zones) return false;
+		return zones.connected(index, tile.index);
 	}
 
-	/**
-	 * Adds the given tile as a neighbour to the given direction. Will replace
-	 * any previous neighbour in that direction.
-	 *
-	 * NOTE: This is a one way connection and does not guarantee that the given
-	 * tile has set this tile as a neighbour.
-	 *
-	 * @param direction The direction of the neighbour.
-	 * @param tile The new neighbour to be added.
-	 */
-	public void addNeighbour(Direction direction, MapTile tile) { neighbours.put(direction, tile); }
-
 	/**
 	 * Gets the neighbour in the given direction.
 	 *
 	 * @param direction The direction to get the neighbour from.
 	 * @return Returns the MapTile neighbour in the given direction. If no
-	 * neighbour exists in that direction the null is returned.
+	 * neighbour exists in that direction, or the tile is not part of a Map,
+	 * then null is returned.
+	 */
+	public MapTile getNeighbour(Direction direction)
+	{
+		if(map == null) return null;
+		int neighbour = store.neighbour(index, direction.ordinal());
+		return neighbour == -1 ? null : map.getTileByIndex(neighbour);
+	}
+
+	/**
+	 * Gets every neighbour in a new array, in the order of Direction. Searches
+	 * should loop over Direction.values() with getNeighbour() instead, which
+	 * doesn't allocate.
 	 */
-	public MapTile getNeighbour(Direction direction) { return neighbours.get(direction); }
 	public MapTile[] getNeighbours()
 	{
-		MapTile[] tiles = new MapTile[neighbours.size()];
-		Iterator iterator = neighbours.values().iterator();
-		for(int i = 0; i < tiles.length; i++) tiles[i] = (MapTile) iterator.next();
+		int count = 0;
+		for(Direction direction : DIRECTIONS) if(getNeighbour(direction) != null) count++;
+
+		MapTile[] tiles = new MapTile[count];
+		count = 0;
+		for(Direction direction : DIRECTIONS) if(getNeighbour(direction) != null) tiles[count++] = getNeighbour(direction);
 		return tiles;
 	}
 	
-	public MapPosition getPosition() { return position; }
+	/**
+	 * Gets the position of this tile, from its coordinates in the TileStore.
+	 *
+	 * @return The interned MapPosition of this tile.
+	 */
+	public MapPosition getPosition() { return MapPosition.of(store.x(index), store.y(index)); }
 
-	public MapTile north() { return neighbours.get(Direction.NORTH); }
-	public MapTile east() { return neighbours.get(Direction.EAST); }
-	public MapTile south() { return neighbours.get(Direction.SOUTH); }
-	public MapTile west() { return neighbours.get(Direction.WEST); }
+	public MapTile north() { return getNeighbour(Direction.NORTH); }
+	public MapTile east() { return getNeighbour(Direction.EAST); }
+	public MapTile south() { return getNeighbour(Direction.SOUTH); }
+	public MapTile west() { return getNeighbour(Direction.WEST); }
 	
-	public void setTool(Tool tool) { this.tool = tool; }
-	public Tool getTool() { return tool; }
+	public void setTool(Tool tool)
+	{
+		if(map == null) {
+			store.setTool(index, tool);
+			return;
+		}
+
+		Tool previous = getTool();
+		zones.count(index, previous, -1);
+		zones.count(index, tool, 1);
+		store.setTool(index, tool);
+		map.toolChanged(this, previous);
+	}
+	public Tool getTool() { return store.tool(index); }
 	
-	public void setObstacle(Obstacle obstacle) { this.obstacle = obstacle; }
-	public Obstacle getObstacle() { return this.obstacle; }
+	public void setObstacle(Obstacle obstacle)
+	{
+		if(map == null) {
+			store.setObstacle(index, obstacle);
+			return;
+		}
+
+		Obstacle previous = getObstacle();
+		zones.count(index, previous, -1);
+		zones.count(index, obstacle, 1);
+		store.setObstacle(index, obstacle);
+		map.obstacleChanged(this, previous);
+	}
+	public Obstacle getObstacle() { return store.obstacle(index); }
 
 	public String toString()
 	{
-		String string = "Map Tile [" + position.getX() + "," + position.getY() + "]";
-		string += " Obstacle: " + obstacle;
-		string += ", Tool: " + tool;
+		String string = "Map Tile [" + store.x(index) + "," + store.y(index) + "]";
+		string += " Obstacle: " + getObstacle();
+		string += ", Tool: " + getTool();
 		return string;
 	}
 
@@ -375,10 +317,11 @@ public class MapTile
 	 */
 	public boolean isWalkable()
 	{
+		Obstacle obstacle = getObstacle();
 		return obstacle == Obstacle.NONE || obstacle == Obstacle.DOOR || obstacle == Obstacle.TREE;
 	}
 
-	public boolean isWater() { return obstacle == Obstacle.WATER; }
-	public boolean isWall() { return obstacle == Obstacle.WALL; }
-	public boolean isWilderness() { return obstacle == Obstacle.WILDERNESS; }
+	public boolean isWater() { return getObstacle() == Obstacle.WATER; }
+	public boolean isWall() { return getObstacle() == Obstacle.WALL; }
+	public boolean isWilderness() { return getObstacle() == Obstacle.WILDERNESS; }
 }
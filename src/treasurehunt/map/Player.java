@@ -18,13 +18,12 @@ import java.util.HashMap;
 public class Player 
 {
 	private Direction direction = Direction.NORTH;
-	private MapTile tile = new MapTile(new MapPosition(0, 0));
+	private MapTile tile = new MapTile(MapPosition.of(0, 0));
 	private final HashMap<Tool, Integer> inventory = new HashMap<>();
 	private boolean sailing = false;
 
 	public Player()
 	{
-		tile.explored();
 	}
 
 	public boolean isSailing() { return sailing; }
@@ -165,6 +164,19 @@ public class Player
 	 */
 	public void setTile(MapTile tile) { this.tile = tile; }
 
+	void setDirection(Direction direction) { this.direction = direction; }
+	void setSailing(boolean sailing) { this.sailing = sailing; }
+
+	/**
+	 * Sets the number of the given tool in the player's inventory, i.e. when
+	 * restoring a MapSnapshot.
+	 */
+	void setNumOfTool(Tool tool, int amount)
+	{
+		if(amount == 0) inventory.remove(tool);
+		else inventory.put(tool, amount);
+	}
+
 	/**
 	 * Gets the tile the player is currently standing on.
 	 *
@@ -0,0 +1,271 @@
+package treasurehunt.map;
+
+import treasurehunt.constant.Direction;
+import treasurehunt.constant.Obstacle;
+import treasurehunt.constant.Tool;
+
+import java.util.Arrays;
+import java.util.HashMap;
+
+/**
+ * StoneBridges works out where stepping stones could be placed to bridge the
+ * water between a land zone and other land. They are the stone edges of the
+ * ZoneGraph.
+ *
+ * A single breadth first search is made over the water, starting from every
+ * water tile on the coast of the zone at once, so each water tile learns the
+ * fewest stones it takes to get there and which coastal tile that bridge starts
+ * from. Every other land zone that the water touches is given the first, and
+ * therefore cheapest, bridge that reaches it. Land can only be stepped onto
+ * where there is nothing in the way, or a door and the player has a KEY, and
+ * never onto a stepping stone that hasn't been picked up.
+ *
+ * The bridges out of a zone only depend on the water, the stones and the land
+ * zones of the Map and whether the player has a KEY, so they are worked out the
+ * first time they are asked for and kept until one of those changes, see
+ * Map.coastVersion(). A new tile can still change which tile a zone is known
+ * by without joining zones, so the zone a bridge lands on is looked up from its
+ * landing tile each time it is asked for.
+ */
+public class StoneBridges
+{
+	private static final int NUM_DIRECTIONS = Direction.values().length;
+
+	/**
+	 * The cheapest bridge to each zone that can be reached from one zone: the
+	 * coastal tile it starts from, the number of stones it takes and the tile
+	 * it lands on.
+	 */
+	private static class Bridges
+	{
+		private int[] sources = new int[8];
+		private int[] stones = new int[8];
+		private int[] landings = new int[8];
+		private int size = 0;
+
+		private void add(int source, int numStones, int landing)
+		{
+			if(size == sources.length) {
+				sources = Arrays.copyOf(sources, size * 2);
+				stones = Arrays.copyOf(stones, size * 2);
+				landings = Arrays.copyOf(landings, size * 2);
+			}
+
+			sources[size] = source;
+			stones[size] = numStones;
+			landings[size] = landing;
+			size++;
+		}
+	}
+
+	private final Map map;
+
+	// The coast version of the Map the bridges were worked out for, and the
+	// bridges out of each zone by zone and whether the player has a KEY.
+	private int version = -1;
+	private final HashMap<Long, Bridges> bridges = new HashMap<>();
+
+	// The search arrays, kept between builds and only grown with the Map. A
+	// water tile has a depth in the current build if its mark is the build.
+	private int[] depths = new int[0];
+	private int[] origins = new int[0];
+	private int[] queue = new int[0];
+	private int[] marks = new int[0];
+	private int build = 0;
+
+	StoneBridges(Map map)
+	{
+		this.map = map;
+	}
+
+	/**
+	 * Whether a bridge starting from the given coastal tile can reach other land
+	 * from the player's zone with no more than the given number of stones.
+	 */
+	public boolean canBridge(MapTile start, int numStones)
+	{
+		Bridges bridges = fromPlayer();
+
+		for(int i = 0; i < bridges.size; i++) {
+			if(bridges.sources[i] == start.getIndex() && bridges.stones[i] <= numStones) return true;
+		}
+
+		return false;
+	}
+
+	/**
+	 * Finds the best reward of the bridges out of the player's zone that start
+	 * from the given coastal tile and take no more than the given number of
+	 * stones. A bridge is worth the size and tools of the zone it reaches
+	 * divided by the number of tiles that have to be crossed to get there.
+	 *
+	 * @param start The coastal tile the bridges start from.
+	 * @param numStones The most stones a bridge can take.
+	 * @return The best reward or 0 if no bridge starts from the tile.
+	 */
+	public int reward(MapTile start, int numStones)
+	{
+		Bridges bridges = fromPlayer();
+
+		int best = 0;
+
+		for(int i = 0; i < bridges.size; i++) {
+			if(bridges.sources[i] != start.getIndex() || bridges.stones[i] > numStones) continue;
+
+			MapTile landing = map.getTileByIndex(bridges.landings[i]);
+			int reward = (landing.zoneReward() + landing.zoneSize()) / (bridges.stones[i] + 1);
+			if(reward > best) best = reward;
+		}
+
+		return best;
+	}
+
+	/**
+	 * The number of stones the cheapest bridge from the player's zone to the
+	 * zone of the given tile takes.
+	 *
+	 * @return The number of stones or -1 if the zone can't be bridged to.
+	 */
+	public int stonesTo(MapTile tile)
+	{
+		return stones(map.getPlayer().getTile().getZone(), tile.getZone(), map.getPlayer().hasTool(Tool.KEY));
+	}
+
+	/**
+	 * The number of stones the cheapest bridge from one land zone to another
+	 * takes.
+	 *
+	 * @param from The zone the bridge starts from.
+	 * @param to The zone the bridge lands on.
+	 * @param key Whether the player has a KEY to land on a door with.
+	 * @return The number of stones or -1 if the zone can't be bridged to.
+	 */
+	int stones(int from, int to, boolean key)
+	{
+		Bridges bridges = from(from, key);
+		int i = indexOf(bridges, to);
+		return i == -1 ? -1 : bridges.stones[i];
+	}
+
+	/**
+	 * Every land zone that a bridge from the given land zone can reach.
+	 *
+	 * @param from The zone the bridges start from.
+	 * @param key Whether the player has a KEY to land on a door with.
+	 * @return The identifiers of the zones, cheapest bridge first.
+	 */
+	int[] bridgedZones(int from, boolean key)
+	{
+		Bridges bridges = from(from, key);
+
+		int[] zones = new int[bridges.size];
+		for(int i = 0; i < bridges.size; i++) zones[i] = zoneOf(bridges.landings[i]);
+		return zones;
+	}
+
+	/**
+	 * Finds the bridge that lands on the given zone.
+	 *
+	 * @return The position of the bridge in the given bridges or -1 if none of
+	 * them land on the zone.
+	 */
+	private int indexOf(Bridges bridges, int zone)
+	{
+		for(int i = 0; i < bridges.size; i++) {
+			if(zoneOf(bridges.landings[i]) == zone) return i;
+		}
+		return -1;
+	}
+
+	private Bridges fromPlayer()
+	{
+		Player player = map.getPlayer();
+		return from(player.getTile().getZone(), player.hasTool(Tool.KEY));
+	}
+
+	/**
+	 * Gets the bridges out of the given zone, working them out if they haven't
+	 * been since the coast of the Map last changed.
+	 */
+	private Bridges from(int zone, boolean key)
+	{
+		if(version != map.coastVersion()) {
+			version = map.coastVersion();
+			bridges.clear();
+		}
+
+		long id = (long) zone << 1 | (key ? 1 : 0);
+		Bridges found = bridges.get(id);
+		if(found == null) bridges.put(id, found = build(zone, key));
+		return found;
+	}
+
+	private Bridges build(int zone, boolean key)
+	{
+		Bridges bridges = new Bridges();
+
+		int numTiles = map.numTiles();
+		if(depths.length < numTiles) {
+			int length = Math.max(numTiles, depths.length * 2);
+			depths = new int[length];
+			origins = new int[length];
+			queue = new int[length];
+			marks = new int[length];
+		}
+
+		build++;
+		int head = 0, tail = 0;
+
+		// Every water tile on the coast of the zone takes one stone. The tiles
+		// are walked through the TileStore, and a MapTile is only looked up for
+		// the zone of a land tile.
+		TileStore store = map.getTileStore();
+
+		for(int i = 0; i < numTiles; i++) {
+			if(!store.isWater(i)) continue;
+
+			for(int direction = 0; direction < NUM_DIRECTIONS; direction++) {
+				int neighbour = store.neighbour(i, direction);
+				if(neighbour == -1 || store.isWater(neighbour) || zoneOf(neighbour) != zone) continue;
+				marks[i] = build;
+				depths[i] = 1;
+				origins[i] = i;
+				queue[tail++] = i;
+				break;
+			}
+		}
+
+		while(head < tail) {
+			int index = queue[head++];
+
+			for(int direction = 0; direction < NUM_DIRECTIONS; direction++) {
+				int next = store.neighbour(index, direction);
+				if(next == -1) continue;
+
+				if(store.isWater(next)) {
+					if(marks[next] == build) continue;
+					marks[next] = build;
+					depths[next] = depths[index] + 1;
+					origins[next] = origins[index];
+					queue[tail++] = next;
+				}
+				else if(canLand(store, next, key) && zoneOf(next) != zone) {
+					// Water is searched in order of depth, so the first bridge
+					// to reach a zone is always the cheapest.
+					if(indexOf(bridges, zoneOf(next)) == -1) bridges.add(origins[index], depths[index], next);
+				}
+			}
+		}
+
+		return bridges;
+	}
+
+	private int zoneOf(int tile) { return map.getTileByIndex(tile).getZone(); }
+
+	private static boolean canLand(TileStore store, int tile, boolean key)
+	{
+		if(store.tool(tile) == Tool.STONE) return false;
+		Obstacle obstacle = store.obstacle(tile);
+		return obstacle == Obstacle.NONE || (obstacle == Obstacle.DOOR && key);
+	}
+}
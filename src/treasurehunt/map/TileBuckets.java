@@ -0,0 +1,204 @@
+package treasurehunt.map;
+
+import java.util.Arrays;
+import java.util.function.IntUnaryOperator;
+
+/**
+ * TileBuckets is a set of the tiles on a Map that can also find the tiles
+ * nearest to a position without looking at every tile in the set. Each tile
+ * is kept in a TileIndexSet and in the bucket of the square of the map it is
+ * in, BUCKET_SIZE tiles a side.
+ *
+ * To find the nearest tiles the buckets are looked through in rings around
+ * the position, nearest ring first, and the search stops as soon as no tile
+ * in the next ring could be nearer than those already found.
+ *
+ * Like the TileGrid, the grid of buckets keeps track of the world position of
+ * its first bucket and grows in whichever direction a tile is added outside of
+ * its current bounds.
+ */
+class TileBuckets
+{
+	private static final int BUCKET_SIZE = 8;
+	private static final int INITIAL_SIZE = 4;
+
+	private final TileIndexSet members = new TileIndexSet();
+
+	// The tile indices in each bucket, row-major, and how many there are.
+	private int[][] buckets;
+	private int[] counts;
+
+	// Position of the first bucket of the grid, in buckets.
+	private int originX;
+	private int originY;
+
+	private int width;
+	private int height;
+
+	TileBuckets()
+	{
+		this.width = INITIAL_SIZE;
+		this.height = INITIAL_SIZE;
+		this.originX = -width/2;
+		this.originY = -height/2;
+		this.buckets = new int[width * height][];
+		this.counts = new int[width * height];
+	}
+
+	/**
+	 * Adds the given tile to the set.
+	 */
+	void add(MapTile tile)
+	{
+		if(members.contains(tile.getIndex())) return;
+		members.add(tile.getIndex());
+
+		int bx = Math.floorDiv(tile.getPosition().getX(), BUCKET_SIZE);
+		int by = Math.floorDiv(tile.getPosition().getY(), BUCKET_SIZE);
+		ensureContains(bx, by);
+
+		int bucket = (by - originY) * width + (bx - originX);
+		if(buckets[bucket] == null) buckets[bucket] = new int[4];
+		else if(counts[bucket] == buckets[bucket].length) buckets[bucket] = Arrays.copyOf(buckets[bucket], counts[bucket] * 2);
+		buckets[bucket][counts[bucket]++] = tile.getIndex();
+	}
+
+	/**
+	 * Removes the given tile from the set.
+	 */
+	void remove(MapTile tile)
+	{
+		if(!members.contains(tile.getIndex())) return;
+		members.remove(tile.getIndex());
+
+		int bucket = (Math.floorDiv(tile.getPosition().getY(), BUCKET_SIZE) - originY) * width
+				+ (Math.floorDiv(tile.getPosition().getX(), BUCKET_SIZE) - originX);
+
+		int[] tiles = buckets[bucket];
+		for(int i = 0; i < counts[bucket]; i++) {
+			if(tiles[i] != tile.getIndex()) continue;
+			tiles[i] = tiles[--counts[bucket]];
+			return;
+		}
+	}
+
+	/**
+	 * The number of tiles in the set.
+	 */
+	int size() { return members.size(); }
+
+	/**
+	 * Finds the tiles in the set that are nearest to the given position.
+	 *
+	 * @param x The x coordinate of the position.
+	 * @param y The y coordinate of the position.
+	 * @param count The most tiles to find.
+	 * @param distance The distance to each tile, by its index. It must never be
+	 *                 less than the number of steps between the tile and the
+	 *                 position.
+	 * @return The indices of up to count tiles in order of their distance and
+	 * then of their index.
+	 */
+	int[] nearest(int x, int y, int count, IntUnaryOperator distance)
+	{
+		count = Math.min(count, size());
+
+		int[] nearest = new int[count];
+		int[] distances = new int[count];
+		int found = 0;
+
+		if(count == 0) return nearest;
+
+		int cx = Math.floorDiv(x, BUCKET_SIZE);
+		int cy = Math.floorDiv(y, BUCKET_SIZE);
+		int rings = Math.max(Math.max(cx - originX, originX + width - 1 - cx),
+				Math.max(cy - originY, originY + height - 1 - cy));
+
+		for(int r = 0; r <= rings; r++) {
+			// Every tile in ring r is at least this many steps away.
+			int closest = r == 0 ? 0 : (r - 1) * BUCKET_SIZE + 1;
+			if(found == count && distances[count - 1] < closest) break;
+
+			for(int by = cy - r; by <= cy + r; by++) {
+				// Only the first and last rows of the ring are whole.
+				int step = by == cy - r || by == cy + r ? 1 : 2 * r;
+
+				for(int bx = cx - r; bx <= cx + r; bx += step) {
+					int i = bx - originX;
+					int j = by - originY;
+					if(i < 0 || j < 0 || i >= width || j >= height) continue;
+
+					int bucket = j * width + i;
+					for(int k = 0; k < counts[bucket]; k++) {
+						int tile = buckets[bucket][k];
+						found = insert(nearest, distances, found, tile, distance.applyAsInt(tile));
+					}
+				}
+			}
+		}
+
+		return nearest;
+	}
+
+	/**
+	 * Inserts a tile into the sorted nearest tiles found so far if it is nearer
+	 * than the farthest of them, or there is still room.
+	 *
+	 * @return The number of tiles found.
+	 */
+	private static int insert(int[] nearest, int[] distances, int found, int tile, int distance)
+	{
+		int j;
+		if(found < nearest.length) j = found++;
+		else if(closer(distance, tile, distances[found - 1], nearest[found - 1])) j = found - 1;
+		else return found;
+
+		for(; j > 0 && closer(distance, tile, distances[j-1], nearest[j-1]); j--) {
+			nearest[j] = nearest[j-1];
+			distances[j] = distances[j-1];
+		}
+		nearest[j] = tile;
+		distances[j] = distance;
+		return found;
+	}
+
+	private static boolean closer(int distance, int tile, int otherDistance, int other)
+	{
+		return distance < otherDistance || (distance == otherDistance && tile < other);
+	}
+
+	/**
+	 * Grows the grid so that it covers the given bucket, in the same way as
+	 * TileGrid.
+	 */
+	private void ensureContains(int bx, int by)
+	{
+		int minX = originX, maxX = originX + width - 1;
+		int minY = originY, maxY = originY + height - 1;
+
+		if(bx >= minX && bx <= maxX && by >= minY && by <= maxY) return;
+
+		if(bx < minX) minX = Math.min(bx, minX - width);
+		else if(bx > maxX) maxX = Math.max(bx, maxX + width);
+		if(by < minY) minY = Math.min(by, minY - height);
+		else if(by > maxY) maxY = Math.max(by, maxY + height);
+
+		int newWidth = maxX - minX + 1;
+		int newHeight = maxY - minY + 1;
+		int[][] grownBuckets = new int[newWidth * newHeight][];
+		int[] grownCounts = new int[newWidth * newHeight];
+
+		for(int j = 0; j < height; j++) {
+			int to = (j + originY - minY) * newWidth + (originX - minX);
+			System.arraycopy(buckets, j * width, grownBuckets, to, width);
+			System.arraycopy(counts, j * width, grownCounts, to, width);
+		}
+
+		buckets = grownBuckets;
+		counts = grownCounts;
+		originX = minX;
+		originY = minY;
+		width = newWidth;
+		height = newHeight;
+	}
+}
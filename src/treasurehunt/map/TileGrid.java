@@ -0,0 +1,114 @@
+package treasurehunt.map;
+
+/**
+ * The TileGrid is a dense, row-major grid of the indices of the tiles on a
+ * Map, indexed directly by their x, y coordinates. Since the player always
+ * starts at the origin and the map can extend in any direction from there, the
+ * grid keeps track of the world position of its first cell and grows in
+ * whichever direction a new tile is added outside of its current bounds.
+ *
+ * Lookups are done with primitive coordinates so that no MapPosition needs to
+ * be created or hashed to find a tile. The grid only holds indices, so the
+ * TileStore can find the neighbours of a tile from its coordinates and the Map
+ * looks the MapTile up by its index.
+ */
+public class TileGrid
+{
+	private static final int INITIAL_SIZE = 16;
+
+	// The index of the tile in each cell plus one, 0 if there is no tile.
+	private int[] tiles;
+
+	// World position of the first cell of the grid.
+	private int originX;
+	private int originY;
+
+	private int width;
+	private int height;
+	private int size = 0;
+
+	public TileGrid(int width, int height)
+	{
+		this.width = width;
+		this.height = height;
+		this.originX = -width/2;
+		this.originY = -height/2;
+		this.tiles = new int[width * height];
+	}
+	public TileGrid() { this(INITIAL_SIZE, INITIAL_SIZE); }
+
+	/**
+	 * Gets the index of the tile at the given coordinates.
+	 *
+	 * @param x The x coordinate of the tile.
+	 * @param y The y coordinate of the tile.
+	 * @return The index of the tile at the given coordinates or -1 if no tile
+	 * has been added at that position.
+	 */
+	public int get(int x, int y)
+	{
+		int i = x - originX;
+		int j = y - originY;
+		if(i < 0 || j < 0 || i >= width || j >= height) return -1;
+		return tiles[j * width + i] - 1;
+	}
+	public int get(MapPosition position) { return get(position.getX(), position.getY()); }
+
+	public boolean contains(int x, int y) { return get(x, y) != -1; }
+
+	/**
+	 * Places a tile at the given coordinates, growing the grid if the
+	 * coordinates are outside of the grid's current bounds. Any tile previously
+	 * at that position is overwritten.
+	 *
+	 * @param x The x coordinate of the tile.
+	 * @param y The y coordinate of the tile.
+	 * @param tile The index of the tile to place.
+	 */
+	public void put(int x, int y, int tile)
+	{
+		ensureContains(x, y);
+		int index = (y - originY) * width + (x - originX);
+		if(tiles[index] == 0) size++;
+		tiles[index] = tile + 1;
+	}
+	public void put(MapPosition position, int tile) { put(position.getX(), position.getY(), tile); }
+
+	/**
+	 * The number of tiles currently stored in the grid.
+	 */
+	public int size() { return size; }
+
+	/**
+	 * Grows the grid so that it covers the given coordinates. Each time the
+	 * grid grows in a direction it at least doubles in that dimension so that
+	 * a map being explored in one direction only pays for a handful of copies.
+	 */
+	private void ensureContains(int x, int y)
+	{
+		int minX = originX, maxX = originX + width - 1;
+		int minY = originY, maxY = originY + height - 1;
+
+		if(x >= minX && x <= maxX && y >= minY && y <= maxY) return;
+
+		if(x < minX) minX = Math.min(x, minX - width);
+		else if(x > maxX) maxX = Math.max(x, maxX + width);
+		if(y < minY) minY = Math.min(y, minY - height);
+		else if(y > maxY) maxY = Math.max(y, maxY + height);
+
+		int newWidth = maxX - minX + 1;
+		int newHeight = maxY - minY + 1;
+		int[] grown = new int[newWidth * newHeight];
+
+		for(int j = 0; j < height; j++) {
+			System.arraycopy(tiles, j * width, grown,
+					(j + originY - minY) * newWidth + (originX - minX), width);
+		}
+
+		tiles = grown;
+		originX = minX;
+		originY = minY;
+		width = newWidth;
+		height = newHeight;
+	}
+}
@@ -0,0 +1,65 @@
+package treasurehunt.map;
+
+import java.util.Arrays;
+
+/**
+ * A TileIndexSet is a set of the tiles on a Map, kept by their index. The Map
+ * keeps one as its frontier, every unexplored tile that is not a WALL or
+ * WILDERNESS, and one in the TileBuckets of each tool and of TREE and DOOR
+ * obstacles, and updates them whenever a tile changes, so none of them ever
+ * has to be found by searching the map.
+ *
+ * Tiles are kept by index in a dense array along with the slot each index is
+ * in, so adding, removing and checking for a tile are all constant time and
+ * going through the set only touches the tiles that are in it.
+ */
+class TileIndexSet
+{
+	private static final int INITIAL_CAPACITY = 256;
+
+	private int[] members = new int[INITIAL_CAPACITY];
+	private int size = 0;
+
+	// The slot of each tile index in members plus one, 0 if it isn't a member.
+	private int[] slots = new int[INITIAL_CAPACITY];
+
+	/**
+	 * Adds the tile with the given index to the set.
+	 */
+	void add(int tile)
+	{
+		if(tile >= slots.length) slots = Arrays.copyOf(slots, Math.max(tile + 1, slots.length * 2));
+		if(slots[tile] != 0) return;
+
+		if(size == members.length) members = Arrays.copyOf(members, size * 2);
+		members[size++] = tile;
+		slots[tile] = size;
+	}
+
+	/**
+	 * Removes the tile with the given index from the set. The last member
+	 * is moved into its slot, so the order of the members changes.
+	 */
+	void remove(int tile)
+	{
+		if(!contains(tile)) return;
+
+		int slot = slots[tile] - 1;
+		int last = members[--size];
+		members[slot] = last;
+		slots[last] = slot + 1;
+		slots[tile] = 0;
+	}
+
+	boolean contains(int tile) { return tile >= 0 && tile < slots.length && slots[tile] != 0; }
+
+	/**
+	 * The number of tiles in the set.
+	 */
+	int size() { return size; }
+
+	/**
+	 * Gets the index of the tile in the given slot, from 0 to size() - 1.
+	 */
+	int get(int slot) { return members[slot]; }
+}
@@ -0,0 +1,142 @@
+package treasurehunt.map;
+
+import treasurehunt.constant.Obstacle;
+import treasurehunt.constant.Tool;
+
+import java.util.Arrays;
+
+/**
+ * The TileStore holds the state of every tile on a Map in parallel primitive
+ * arrays, indexed by the tile's index: its x, y coordinates and one byte
+ * holding its obstacle and tool. Everything else about a tile is found from
+ * those and kept where it is already needed: its neighbours are the tiles next
+ * to its coordinates in the Map's TileGrid, its zone is kept by the ZoneSet
+ * and whether it has been explored by the Map's ExploredBits.
+ *
+ * A MapTile is only a view onto its entries here, so the MapTile objects and
+ * the arrays never disagree. Code that looks at every tile, or walks from tile
+ * to tile, can read the arrays directly rather than going through a MapTile
+ * for each one. Each tile takes 5 bytes, so a whole 81x81 world takes up about
+ * 32 KB. The coordinates are kept as shorts, the same as in a MapSnapshot, so
+ * a Map can be no more than Short.MAX_VALUE tiles a side.
+ */
+public class TileStore
+{
+	private static final int INITIAL_CAPACITY = 256;
+
+	private static final Obstacle[] OBSTACLES = Obstacle.values();
+	private static final Tool[] TOOLS = Tool.values();
+	// The offsets of the neighbour in each Direction, by ordinal.
+	private static final int[] DX = {0, 1, 0, -1};
+	private static final int[] DY = {-1, 0, 1, 0};
+
+	// The coordinates of each tile, and its obstacle in the low 3 bits of a byte
+	// and its tool in the next 3.
+	private short[] xs;
+	private short[] ys;
+	private byte[] types;
+
+	private int size = 0;
+
+	private final TileGrid grid;
+	private final ZoneSet zones;
+	private final ExploredBits sight;
+
+	/**
+	 * Creates the TileStore of a Map, whose tiles are placed in the given
+	 * TileGrid, are given zones by the given ZoneSet and are explored according
+	 * to the given ExploredBits.
+	 */
+	TileStore(TileGrid grid, ZoneSet zones, ExploredBits sight)
+	{
+		this(INITIAL_CAPACITY, grid, zones, sight);
+	}
+
+	/**
+	 * Creates a TileStore for the given number of tiles that aren't part of a
+	 * Map, i.e. a MapTile that is yet to be added to one. Such tiles have no
+	 * neighbours and are never explored.
+	 */
+	TileStore(int capacity)
+	{
+		this(capacity, null, null, null);
+	}
+
+	private TileStore(int capacity, TileGrid grid, ZoneSet zones, ExploredBits sight)
+	{
+		this.grid = grid;
+		this.zones = zones;
+		this.sight = sight;
+		this.xs = new short[capacity];
+		this.ys = new short[capacity];
+		this.types = new byte[capacity];
+	}
+
+	/**
+	 * Adds the entries of a new tile.
+	 *
+	 * @param index The index of the tile, which must be the next index.
+	 */
+	void add(int index, int x, int y, Obstacle obstacle, Tool tool)
+	{
+		if(index == types.length) {
+			int capacity = Math.max(index * 2, 1);
+			xs = Arrays.copyOf(xs, capacity);
+			ys = Arrays.copyOf(ys, capacity);
+			types = Arrays.copyOf(types, capacity);
+		}
+
+		xs[index] = (short) x;
+		ys[index] = (short) y;
+		types[index] = pack(obstacle, tool);
+		size = index + 1;
+	}
+
+	void setObstacle(int tile, Obstacle obstacle) { types[tile] = pack(obstacle, tool(tile)); }
+	void setTool(int tile, Tool tool) { types[tile] = pack(obstacle(tile), tool); }
+
+	/**
+	 * The number of tiles in the store.
+	 */
+	public int size() { return size; }
+
+	public Obstacle obstacle(int tile) { return OBSTACLES[types[tile] & 7]; }
+	public Tool tool(int tile) { return TOOLS[types[tile] >> 3 & 7]; }
+	public int x(int tile) { return xs[tile]; }
+	public int y(int tile) { return ys[tile]; }
+	public boolean isExplored(int tile) { return sight != null && sight.isExplored(xs[tile], ys[tile]); }
+
+	public boolean isWater(int tile) { return (types[tile] & 7) == Obstacle.WATER.ordinal(); }
+
+	/**
+	 * The zone the tile is part of, see MapTile.getZone().
+	 *
+	 * @return The identifier of the zone or -1 if the tile isn't part of a Map.
+	 */
+	public int zone(int tile) { return zones == null ? -1 : zones.find(tile); }
+
+	/**
+	 * The obstacle and tool of a tile packed into a byte, the obstacle's ordinal
+	 * in the low 3 bits and the tool's ordinal in the next 3.
+	 */
+	public int type(int tile) { return types[tile]; }
+
+	/**
+	 * Gets the index of the neighbour of a tile, the tile next to it in the
+	 * TileGrid.
+	 *
+	 * @param tile The index of the tile.
+	 * @param direction The ordinal of the direction of the neighbour.
+	 * @return The index of the neighbour or -1 if there isn't one.
+	 */
+	public int neighbour(int tile, int direction)
+	{
+		if(grid == null) return -1;
+		return grid.get(xs[tile] + DX[direction], ys[tile] + DY[direction]);
+	}
+
+	private static byte pack(Obstacle obstacle, Tool tool)
+	{
+		return (byte) (obstacle.ordinal() | tool.ordinal() << 3);
+	}
+}
@@ -0,0 +1,230 @@
+package treasurehunt.map;
+
+import treasurehunt.constant.Obstacle;
+import treasurehunt.constant.Tool;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedList;
+
+/**
+ * The ZoneGraph is a view of the Map where every zone is a node and every
+ * border between two zones is an edge. The graph is backed by the Map's zones,
+ * which are kept up to date as tiles are added, so it never needs rebuilding.
+ *
+ * Each edge is annotated with what it takes to cross it. Walking off land
+ * into water takes a RAFT, docking from water onto land takes nothing and
+ * walls and the wilderness can never be crossed. Land zones are also joined by
+ * stone edges, one for every other land zone that the Map's StoneBridges can
+ * reach across the water, annotated with how many stones the bridge takes.
+ *
+ * Doors and trees are walked through as part of the land around them, so
+ * rather than edges they are counted on each land node. A planner can then
+ * tell whether a new raft can be made there or a key is needed to get around.
+ *
+ * Since there are only ever tens of zones on a map, questions like which
+ * islands can be reached from here are answered on the graph rather than by
+ * searching every tile.
+ */
+public class ZoneGraph
+{
+	private final ZoneSet zones;
+	private final StoneBridges bridges;
+
+	ZoneGraph(ZoneSet zones, StoneBridges bridges)
+	{
+		this.zones = zones;
+		this.bridges = bridges;
+	}
+
+	public boolean isWater(int zone) { return zones.numObstaclesInZone(zone, Obstacle.WATER) > 0; }
+	public boolean isWall(int zone) { return zones.numObstaclesInZone(zone, Obstacle.WALL) > 0; }
+	public boolean isWilderness(int zone) { return zones.numObstaclesInZone(zone, Obstacle.WILDERNESS) > 0; }
+	public boolean isLand(int zone) { return !isWater(zone) && !isWall(zone) && !isWilderness(zone); }
+
+	public int size(int zone) { return zones.sizeOfZone(zone); }
+	public int numExplored(int zone) { return zones.exploredInZone(zone); }
+	public int numTrees(int zone) { return zones.numObstaclesInZone(zone, Obstacle.TREE); }
+	public int numDoors(int zone) { return zones.numObstaclesInZone(zone, Obstacle.DOOR); }
+	public int numTools(int zone, Tool tool) { return zones.numToolsInZone(zone, tool); }
+
+	/**
+	 * Gets all of the zones that border the given zone.
+	 *
+	 * @param zone The zone to get the neighbours of.
+	 * @return The identifiers of all of the bordering zones.
+	 */
+	public int[] getNeighbours(int zone) { return zones.adjacentZones(zone); }
+
+	/**
+	 * Finds what it takes to cross the border from one zone into another.
+	 *
+	 * @param from The zone being left.
+	 * @param to The zone being entered.
+	 * @return NONE if the border can be crossed freely, RAFT if the border goes
+	 * from land into water, or null if the border can never be crossed.
+	 */
+	public Tool crossing(int from, int to)
+	{
+		if(isWall(to) || isWilderness(to)) return null;
+		if(isLand(from) && isWater(to)) return Tool.RAFT;
+		return Tool.NONE;
+	}
+
+	/**
+	 * Gets every land zone that a bridge of stepping stones from the given land
+	 * zone could reach.
+	 *
+	 * @param zone The zone the bridges start from.
+	 * @param key Whether the player has a KEY to land on a door with.
+	 * @return The identifiers of the zones, cheapest bridge first.
+	 */
+	public int[] getBridges(int zone, boolean key)
+	{
+		return isLand(zone) ? bridges.bridgedZones(zones.currentZone(zone), key) : new int[0];
+	}
+
+	/**
+	 * Finds how many stones it takes to bridge from one land zone to another.
+	 *
+	 * @return The number of stones or -1 if there is no bridge between them.
+	 */
+	public int stonesTo(int from, int to, boolean key)
+	{
+		if(!isLand(from) || !isLand(to)) return -1;
+		return bridges.stones(zones.currentZone(from), zones.currentZone(to), key);
+	}
+
+	/**
+	 * Finds every zone that can be reached from the given zone by walking and
+	 * sailing.
+	 *
+	 * @see #reachableZones(int, boolean, boolean, int, boolean)
+	 */
+	public HashSet<Integer> reachableZones(int from, boolean raft, boolean axe)
+	{
+		return reachableZones(from, raft, axe, 0, false);
+	}
+
+	/**
+	 * Finds every zone that can be reached from the given zone by walking,
+	 * sailing and placing stepping stones. Landing from a raft uses it up, so a
+	 * player can only set sail again from land that has a tree on it and only
+	 * if they have an AXE. Each bridge uses up its stones.
+	 *
+	 * @param from The zone to start from.
+	 * @param raft Whether the player currently has a raft.
+	 * @param axe Whether the player has an AXE to make a new raft with.
+	 * @param stones The number of stones the player has.
+	 * @param key Whether the player has a KEY to land on a door with.
+	 * @return The identifiers of every reachable zone, including the given zone.
+	 */
+	public HashSet<Integer> reachableZones(int from, boolean raft, boolean axe, int stones, boolean key)
+	{
+		from = zones.currentZone(from);
+
+		HashSet<Integer> reachable = new HashSet<>();
+		// The most stones left on reaching each zone, with and without a raft.
+		HashMap<Long, Integer> visited = new HashMap<>();
+		LinkedList<int[]> unexpanded = new LinkedList<>();
+
+		visit(from, raft, stones, reachable, visited, unexpanded);
+
+		int[] state;
+
+		while((state = unexpanded.poll()) != null) {
+			int zone = state[0];
+			boolean hasRaft = state[1] == 1 || (isLand(zone) && axe && numTrees(zone) > 0);
+			int left = state[2];
+
+			for(int neighbour : getNeighbours(zone)) {
+				Tool tool = crossing(zone, neighbour);
+				if(tool == null || (tool == Tool.RAFT && !hasRaft)) continue;
+
+				// Sailing keeps the raft, landing uses it up.
+				visit(neighbour, hasRaft && isWater(neighbour), left, reachable, visited, unexpanded);
+			}
+
+			if(left == 0 || !isLand(zone)) continue;
+
+			// Walking over a bridge keeps whatever the player is carrying.
+			for(int bridged : bridges.bridgedZones(zone, key)) {
+				int cost = bridges.stones(zone, bridged, key);
+				if(cost <= left) visit(bridged, hasRaft, left - cost, reachable, visited, unexpanded);
+			}
+		}
+
+		return reachable;
+	}
+
+	private static void visit(int zone, boolean raft, int stones, HashSet<Integer> reachable, HashMap<Long, Integer> visited, LinkedList<int[]> unexpanded)
+	{
+		long id = (long) zone << 1 | (raft ? 1 : 0);
+		Integer best = visited.get(id);
+		if(best != null && best >= stones) return;
+
+		visited.put(id, stones);
+		reachable.add(zone);
+		unexpanded.add(new int[] {zone, raft ? 1 : 0, stones});
+	}
+
+	/**
+	 * Whether the given zone can be reached from another zone.
+	 *
+	 * @see #reachableZones(int, boolean, boolean)
+	 */
+	public boolean isReachable(int from, int to, boolean raft, boolean axe)
+	{
+		return reachableZones(from, raft, axe).contains(zones.currentZone(to));
+	}
+
+	/**
+	 * Whether setting sail from the given land zone could lead anywhere new.
+	 * Sailing is only worthwhile if the water that can be reached has not been
+	 * fully explored yet or if it leads to another island.
+	 */
+	public boolean isWorthSailing(int from)
+	{
+		for(int water : getNeighbours(from)) {
+			if(crossing(from, water) == Tool.RAFT && isWorthSailing(from, water)) return true;
+		}
+		return false;
+	}
+
+	/**
+	 * Like isWorthSailing(int) but only for setting sail onto the given water.
+	 */
+	public boolean isWorthSailing(int from, int water)
+	{
+		from = zones.currentZone(from);
+
+		for(int zone : reachableZones(water, true, false)) {
+			if(isLand(zone) && zone != from) return true;
+			if(isWater(zone) && numExplored(zone) < size(zone)) return true;
+		}
+
+		return false;
+	}
+
+	/**
+	 * Whether placing stepping stones from the given land zone could reach land
+	 * that can't be walked to without them. A raft is kept for the water that
+	 * stones can't bridge, so it isn't counted on.
+	 *
+	 * @param from The zone the player is on.
+	 * @param stones The number of stones the player has.
+	 * @param key Whether the player has a KEY to land on a door with.
+	 */
+	public boolean isWorthBridging(int from, int stones, boolean key)
+	{
+		if(stones == 0) return false;
+
+		HashSet<Integer> walkable = reachableZones(from, false, false, 0, key);
+
+		for(int zone : reachableZones(from, false, false, stones, key)) {
+			if(!walkable.contains(zone) && isLand(zone)) return true;
+		}
+
+		return false;
+	}
+}
@@ -0,0 +1,352 @@
+package treasurehunt.map;
+
+import treasurehunt.constant.Obstacle;
+import treasurehunt.constant.Tool;
+
+import java.util.Arrays;
+
+/**
+ * The ZoneSet is a disjoint-set (union-find) over the tiles of a Map that keeps
+ * track of which zone each tile belongs to. Every tile added to the map is given
+ * an index by the ZoneSet and starts off in a zone of its own; zones are then
+ * joined with union() as like tiles are found to be next to each other.
+ *
+ * Finding a zone uses path compression and joining zones uses union by rank so
+ * that both are near-constant time no matter how big the zones get.
+ *
+ * A zone is identified by the index of its root node. Zone identifiers are only
+ * stable until the zone is next joined with another zone.
+ *
+ * A tile can be detached from its zone when it changes type, i.e. a stepping
+ * stone placed in the water. The tile keeps its index but is given a new node
+ * to act as a zone of its own, leaving the old node behind in its previous zone.
+ *
+ * Each zone also keeps a running total of its size, the tools and obstacles on
+ * it, how many of its tiles are explored and how many edges it shares with each
+ * bordering zone. The totals are kept on the root node and are combined whenever
+ * two zones are joined, so none of them require the zone to be searched.
+ */
+public class ZoneSet
+{
+	private static final int INITIAL_CAPACITY = 256;
+	private static final int NUM_TOOLS = Tool.values().length;
+	private static final int NUM_OBSTACLES = Obstacle.values().length;
+
+	// The node that each tile index currently belongs to.
+	private int[] nodes = new int[INITIAL_CAPACITY];
+	private int numTiles = 0;
+
+	private int[] parents = new int[INITIAL_CAPACITY];
+	private byte[] ranks = new byte[INITIAL_CAPACITY];
+	private int numNodes = 0;
+
+	// Zone totals, only meaningful on root nodes.
+	private int[] sizes = new int[INITIAL_CAPACITY];
+	private int[] explored = new int[INITIAL_CAPACITY];
+	private int[] tools = new int[INITIAL_CAPACITY * NUM_TOOLS];
+	private int[] obstacles = new int[INITIAL_CAPACITY * NUM_OBSTACLES];
+	private int[][] borders = new int[INITIAL_CAPACITY][];
+	private int[][] borderEdges = new int[INITIAL_CAPACITY][];
+	private int[] numBorders = new int[INITIAL_CAPACITY];
+
+	/**
+	 * Adds a new tile to the set in a zone of its own.
+	 *
+	 * @return The index of the new tile.
+	 */
+	public int add()
+	{
+		if(numTiles == nodes.length) nodes = Arrays.copyOf(nodes, numTiles * 2);
+		nodes[numTiles] = addNode();
+		return numTiles++;
+	}
+
+	/**
+	 * Finds the zone that the tile with the given index is part of.
+	 *
+	 * @param tile The index of the tile.
+	 * @return The identifier of the zone the tile belongs to.
+	 */
+	public int find(int tile)
+	{
+		return root(nodes[tile]);
+	}
+
+	/**
+	 * Joins the zones of the two given tiles together.
+	 *
+	 * @param a The index of the first tile.
+	 * @param b The index of the second tile.
+	 * @return The identifier of the joined zone.
+	 */
+	public int union(int a, int b)
+	{
+		int rootA = find(a);
+		int rootB = find(b);
+		if(rootA == rootB) return rootA;
+
+		if(ranks[rootA] < ranks[rootB]) {
+			int swap = rootA;
+			rootA = rootB;
+			rootB = swap;
+		}
+
+		parents[rootB] = rootA;
+		if(ranks[rootA] == ranks[rootB]) ranks[rootA]++;
+
+		sizes[rootA] += sizes[rootB];
+		explored[rootA] += explored[rootB];
+		for(int i = 0; i < NUM_TOOLS; i++) tools[rootA * NUM_TOOLS + i] += tools[rootB * NUM_TOOLS + i];
+		for(int i = 0; i < NUM_OBSTACLES; i++) obstacles[rootA * NUM_OBSTACLES + i] += obstacles[rootB * NUM_OBSTACLES + i];
+
+		for(int i = 0; i < numBorders[rootB]; i++) addBorder(rootA, root(borders[rootB][i]), borderEdges[rootB][i]);
+		borders[rootB] = null;
+		borderEdges[rootB] = null;
+		numBorders[rootB] = 0;
+
+		return rootA;
+	}
+
+	/**
+	 * Whether the two given tiles are part of the same zone.
+	 */
+	public boolean connected(int a, int b) { return find(a) == find(b); }
+
+	/**
+	 * Removes the tile with the given index from its zone and places it in a
+	 * zone of its own. Any tools, obstacles, exploration or borders of the tile
+	 * must be counted out of its old zone before it is detached.
+	 *
+	 * @param tile The index of the tile to detach.
+	 * @return The identifier of the tile's new zone.
+	 */
+	public int detach(int tile)
+	{
+		sizes[find(tile)]--;
+		nodes[tile] = addNode();
+		return nodes[tile];
+	}
+
+	/**
+	 * Records that the two given tiles are next to each other but are part of
+	 * different zones.
+	 *
+	 * @param a The index of the first tile.
+	 * @param b The index of the second tile.
+	 * @param amount The number of edges to add, -1 to remove a border edge.
+	 */
+	public void border(int a, int b, int amount)
+	{
+		int rootA = find(a);
+		int rootB = find(b);
+		if(rootA == rootB) return;
+
+		addBorder(rootA, rootB, amount);
+		addBorder(rootB, rootA, amount);
+	}
+
+	/**
+	 * Adds to the number of the given tool in the zone of the given tile.
+	 *
+	 * @param tile The index of the tile.
+	 * @param tool The tool to count.
+	 * @param amount The amount to add, may be negative.
+	 */
+	public void count(int tile, Tool tool, int amount) { tools[find(tile) * NUM_TOOLS + tool.ordinal()] += amount; }
+
+	/**
+	 * Adds to the number of the given obstacle in the zone of the given tile.
+	 *
+	 * @param tile The index of the tile.
+	 * @param obstacle The obstacle to count.
+	 * @param amount The amount to add, may be negative.
+	 */
+	public void count(int tile, Obstacle obstacle, int amount) { obstacles[find(tile) * NUM_OBSTACLES + obstacle.ordinal()] += amount; }
+
+	/**
+	 * Adds to the number of explored tiles in the zone of the given tile.
+	 *
+	 * @param tile The index of the tile.
+	 * @param amount The amount to add, may be negative.
+	 */
+	public void countExplored(int tile, int amount) { explored[find(tile)] += amount; }
+
+	public int zoneSize(int tile) { return sizes[find(tile)]; }
+	public int numExplored(int tile) { return explored[find(tile)]; }
+	public int numTools(int tile, Tool tool) { return tools[find(tile) * NUM_TOOLS + tool.ordinal()]; }
+	public int numObstacles(int tile, Obstacle obstacle) { return obstacles[find(tile) * NUM_OBSTACLES + obstacle.ordinal()]; }
+
+	/**
+	 * The total reward of all of the tools in the zone of the given tile.
+	 *
+	 * @param tile The index of the tile.
+	 * @return The sum of the rewards of every tool in the zone.
+	 */
+	public int zoneReward(int tile)
+	{
+		int root = find(tile);
+		int reward = 0;
+		for(Tool tool : Tool.values()) reward += tools[root * NUM_TOOLS + tool.ordinal()] * tool.reward();
+		return reward;
+	}
+
+	/**
+	 * The number of different zones that border the zone of the given tile.
+	 *
+	 * @param tile The index of the tile.
+	 * @return The number of bordering zones.
+	 */
+	public int numAdjacentZones(int tile)
+	{
+		return compactBorders(find(tile));
+	}
+
+	/**
+	 * Whether the zone of the given tile borders the given zone.
+	 *
+	 * @param tile The index of the tile.
+	 * @param zone The identifier of the other zone.
+	 * @return TRUE if the zones border each other, FALSE otherwise.
+	 */
+	public boolean isAdjacent(int tile, int zone)
+	{
+		int root = find(tile);
+		int n = compactBorders(root);
+		for(int i = 0; i < n; i++) {
+			if(borders[root][i] == zone) return true;
+		}
+		return false;
+	}
+
+	/**
+	 * Gets the zones that border the given zone.
+	 *
+	 * @param zone The identifier of a zone.
+	 * @return The identifiers of every zone that borders the given zone.
+	 */
+	int[] adjacentZones(int zone)
+	{
+		int root = root(zone);
+		int n = compactBorders(root);
+		return n == 0 ? new int[0] : Arrays.copyOf(borders[root], n);
+	}
+
+	/**
+	 * Gets the current identifier of a zone that may since have been joined
+	 * with another zone.
+	 */
+	int currentZone(int zone) { return root(zone); }
+
+	int sizeOfZone(int zone) { return sizes[root(zone)]; }
+	int exploredInZone(int zone) { return explored[root(zone)]; }
+	int numObstaclesInZone(int zone, Obstacle obstacle) { return obstacles[root(zone) * NUM_OBSTACLES + obstacle.ordinal()]; }
+	int numToolsInZone(int zone, Tool tool) { return tools[root(zone) * NUM_TOOLS + tool.ordinal()]; }
+
+	/**
+	 * The number of tiles that have been added to the set.
+	 */
+	public int numTiles() { return numTiles; }
+
+	private int addNode()
+	{
+		if(numNodes == parents.length) {
+			int capacity = numNodes * 2;
+			parents = Arrays.copyOf(parents, capacity);
+			ranks = Arrays.copyOf(ranks, capacity);
+			sizes = Arrays.copyOf(sizes, capacity);
+			explored = Arrays.copyOf(explored, capacity);
+			tools = Arrays.copyOf(tools, capacity * NUM_TOOLS);
+			obstacles = Arrays.copyOf(obstacles, capacity * NUM_OBSTACLES);
+			borders = Arrays.copyOf(borders, capacity);
+			borderEdges = Arrays.copyOf(borderEdges, capacity);
+			numBorders = Arrays.copyOf(numBorders, capacity);
+		}
+		parents[numNodes] = numNodes;
+		sizes[numNodes] = 1;
+		return numNodes++;
+	}
+
+	private int root(int node)
+	{
+		int root = node;
+		while(parents[root] != root) root = parents[root];
+
+		// Point every node on the way up directly at the root.
+		while(parents[node] != root) {
+			int next = parents[node];
+			parents[node] = root;
+			node = next;
+		}
+
+		return root;
+	}
+
+	/**
+	 * Adds border edges from one root to another.
+	 */
+	private void addBorder(int root, int other, int amount)
+	{
+		if(root == other) return;
+
+		int n = numBorders[root];
+		int[] list = borders[root];
+
+		for(int i = 0; i < n; i++) {
+			if(list[i] == other || (list[i] = root(list[i])) == other) {
+				borderEdges[root][i] += amount;
+				return;
+			}
+		}
+
+		if(list == null) {
+			list = borders[root] = new int[4];
+			borderEdges[root] = new int[4];
+		}
+		else if(n == list.length) {
+			list = borders[root] = Arrays.copyOf(list, n * 2);
+			borderEdges[root] = Arrays.copyOf(borderEdges[root], n * 2);
+		}
+
+		list[n] = other;
+		borderEdges[root][n] = amount;
+		numBorders[root] = n + 1;
+	}
+
+	/**
+	 * Brings the borders of the given root up to date with any zones that have
+	 * since been joined, combining duplicates and removing the root itself and
+	 * any zones it no longer shares an edge with.
+	 *
+	 * @return The number of bordering zones.
+	 */
+	private int compactBorders(int root)
+	{
+		int[] list = borders[root];
+		int[] edges = borderEdges[root];
+		int n = 0;
+
+		for(int i = 0; i < numBorders[root]; i++) {
+			int other = root(list[i]);
+			if(other == root) continue;
+
+			int j = 0;
+			while(j < n && list[j] != other) j++;
+
+			if(j == n) {
+				list[n] = other;
+				edges[n++] = edges[i];
+			}
+			else edges[j] += edges[i];
+		}
+
+		int m = 0;
+		for(int i = 0; i < n; i++) {
+			if(edges[i] <= 0) continue;
+			list[m] = list[i];
+			edges[m++] = edges[i];
+		}
+
+		numBorders[root] = m;
+		return m;
+	}
+}
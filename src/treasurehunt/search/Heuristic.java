@@ -26,33 +26,68 @@ public class Heuristic
         int xDis = finish.getX() - start.getX();
         int yDis = finish.getY() - start.getY();
 
-        int turns = 0;
-
-        switch(startDirection) {
-            case NORTH:
-                if(xDis != 0) turns++;
-                if(yDis > 0) turns += 2;
-                break;
-            case SOUTH:
-                if(xDis != 0) turns++;
-                if(yDis < 0) turns += 2;
-                break;
-            case EAST:
-                if(yDis != 0) turns++;
-                if(xDis < 0) turns += 2;
-                break;
-            case WEST:
-                if(yDis != 0) turns++;
-                if(xDis > 0) turns += 2;
-                break;
-        }
-
-        if(xDis != 0 && yDis != 0) turns++;
-
-        return Math.abs(xDis) + Math.abs(yDis) + turns;
+        return Math.abs(xDis) + Math.abs(yDis) + turns(startDirection, xDis, yDis);
     }
     public static int distance(MapTile start, MapTile finish, Direction startDirection)
     {
         return distance(start.getPosition(), finish.getPosition(), startDirection);
     }
+
+    /**
+     * The minimum number of LEFT and RIGHT turns needed to travel the given
+     * distance starting out facing the given direction. Every direction the
+     * player has to move in must be faced at some point, and turning around
+     * takes two turns.
+     *
+     * @param startDirection The direction the player is facing at the start.
+     * @param xDis The distance to travel east, negative for west.
+     * @param yDis The distance to travel south, negative for north.
+     * @return The minimum number of turns.
+     */
+    public static int turns(Direction startDirection, int xDis, int yDis)
+    {
+        Direction xDirection = xDis > 0 ? Direction.EAST : Direction.WEST;
+        Direction yDirection = yDis > 0 ? Direction.SOUTH : Direction.NORTH;
+
+        if(xDis == 0 && yDis == 0) return 0;
+        if(xDis == 0) return turns(startDirection, yDirection);
+        if(yDis == 0) return turns(startDirection, xDirection);
+
+        // Facing one of the two directions means one turn to face the other,
+        // facing away from either means two.
+        if(startDirection == xDirection || startDirection == yDirection) return 1;
+        return 2;
+    }
+
+    /**
+     * The number of LEFT or RIGHT actions needed to turn from one direction to
+     * another, as emitted by Task.
+     *
+     * @param from The direction currently faced.
+     * @param to The direction to face.
+     * @return 0, 1 or 2 turns.
+     */
+    public static int turns(Direction from, Direction to)
+    {
+        int difference = Math.abs(from.ordinal() - to.ordinal());
+        return difference == 3 ? 1 : difference;
+    }
+
+    /**
+     * The number of FORWARD moves it would take to go from the start MapTile to
+     * the finish MapTile if nothing was in the way. This never overestimates the
+     * number of actions needed so it is admissible for A*.
+     *
+     * @param start The starting position.
+     * @param finish The goal position.
+     * @return The manhattan distance between the two positions.
+     */
+    public static int manhattan(MapPosition start, MapPosition finish)
+    {
+        return Math.abs(finish.getX() - start.getX()) + Math.abs(finish.getY() - start.getY());
+    }
+    public static int manhattan(MapTile start, MapTile finish)
+    {
+        return manhattan(start.getPosition(), finish.getPosition());
+    }
 }
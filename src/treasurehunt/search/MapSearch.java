@@ -4,15 +4,16 @@ import treasurehunt.constant.Direction;
 import treasurehunt.constant.Obstacle;
 import treasurehunt.constant.Tool;
 import treasurehunt.map.Map;
-import treasurehunt.map.MapPosition;
 import treasurehunt.map.MapTile;
+import treasurehunt.map.Player;
 import treasurehunt.search.find.CoastalFinder;
 import treasurehunt.search.find.HarbourFinder;
 import treasurehunt.search.find.HomeHarbourFinder;
-import treasurehunt.search.find.UnexploredFinder;
 import treasurehunt.search.priority.*;
 
 import java.util.*;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.ToIntFunction;
 
 /**
  * MapSearch provides methods for finding a variety of different tiles.
@@ -22,6 +23,15 @@ import java.util.*;
  */
 public class MapSearch
 {
+    private static final Direction[] DIRECTIONS = Direction.values();
+
+    // Number of states expanded by getPath() since the counter was last reset,
+    // across every thread.
+    private static final AtomicLong expansions = new AtomicLong();
+
+    public static long numExpansions() { return expansions.get(); }
+    public static void resetExpansions() { expansions.set(0); }
+
     /**
      * Finds all of the unexplored tiles on the map. The tiles are prioritiesed
      * by how much new information would be seen if the player walk there devided
@@ -32,14 +42,25 @@ public class MapSearch
      */
     public static MapTile[] findUnexploredTiles(Map map)
     {
-        UnexploredFinder finder = new UnexploredFinder(map);
-        HashSet<MapTile> unexplored = finder.find();
+        return toArray(prioritiseUnexploredTiles(map));
+    }
+
+    /**
+     * Like findUnexploredTiles() but hands the tiles out best first as they are
+     * needed.
+     *
+     * @param map The map to find all the unexplored tiles on.
+     * @return The unexplored tiles or null if there are none.
+     */
+    public static TilePrioritiser prioritiseUnexploredTiles(Map map)
+    {
+        HashSet<MapTile> unexplored = map.getUnexploredTiles();
 
         if (unexplored.size() == 0) return null;
 
         UnexploredPrioritiser pt = new UnexploredPrioritiser(map);
         pt.addTiles(unexplored);
-        return pt.toArray();
+        return pt;
     }
 
     /**
@@ -50,6 +71,15 @@ public class MapSearch
      * to the player's current tile.
      */
     public static MapTile[] findCoastalTiles(Map map)
+    {
+        return toArray(prioritiseCoastalTiles(map));
+    }
+
+    /**
+     * Like findCoastalTiles() but hands the tiles out best first as they are
+     * needed.
+     */
+    public static TilePrioritiser prioritiseCoastalTiles(Map map)
     {
         CoastalFinder finder = new CoastalFinder(map, map.getPlayer().getTile().getZone());
         HashSet<MapTile> coastalTiles = finder.find();
@@ -58,7 +88,7 @@ public class MapSearch
 
         CoastalPrioritiser pt = new CoastalPrioritiser(map);
         pt.addTiles(coastalTiles);
-        return pt.toArray();
+        return pt;
     }
 
     /**
@@ -75,6 +105,23 @@ public class MapSearch
      * @return
      */
     public static MapTile[] findHabourTiles(Map map, MapTile start, boolean canEscape, boolean avoidTrees)
+    {
+        return toArray(prioritiseHabourTiles(map, start, canEscape, avoidTrees));
+    }
+    public static MapTile[] findHabourTiles(Map map, boolean canEscape, boolean avoidTrees)
+    {
+        return findHabourTiles(map, map.getPlayer().getTile(), canEscape, avoidTrees);
+    }
+    public static MapTile[] findHabourTiles(Map map)
+    {
+        return findHabourTiles(map, true, true);
+    }
+
+    /**
+     * Like findHabourTiles() but hands the tiles out best first as they are
+     * needed.
+     */
+    public static TilePrioritiser prioritiseHabourTiles(Map map, MapTile start, boolean canEscape, boolean avoidTrees)
     {
         if(!start.isWater()) return null;
 
@@ -85,16 +132,11 @@ public class MapSearch
 
         HarbourPrioritiser pt = new HarbourPrioritiser(map, canEscape);
         pt.addTiles(harbourTiles);
-
-        return pt.toArray();
+        return pt;
     }
-    public static MapTile[] findHabourTiles(Map map, boolean canEscape, boolean avoidTrees)
+    public static TilePrioritiser prioritiseHabourTiles(Map map, boolean canEscape, boolean avoidTrees)
     {
-        return findHabourTiles(map, map.getPlayer().getTile(), canEscape, avoidTrees);
-    }
-    public static MapTile[] findHabourTiles(Map map)
-    {
-        return findHabourTiles(map, true, true);
+        return prioritiseHabourTiles(map, map.getPlayer().getTile(), canEscape, avoidTrees);
     }
 
     /**
@@ -106,6 +148,15 @@ public class MapSearch
      * to water.
      */
     public static MapTile[] findHomeHabourTiles(Map map)
+    {
+        return toArray(prioritiseHomeHabourTiles(map));
+    }
+
+    /**
+     * Like findHomeHabourTiles() but hands the tiles out best first as they are
+     * needed.
+     */
+    public static TilePrioritiser prioritiseHomeHabourTiles(Map map)
     {
         if(!map.getPlayer().isSailing()) return null;
 
@@ -116,7 +167,7 @@ public class MapSearch
 
         HomeHarbourPrioritiser pt = new HomeHarbourPrioritiser(map);
         pt.addTiles(harbourTiles);
-        return pt.toArray();
+        return pt;
     }
 
     /**
@@ -129,18 +180,95 @@ public class MapSearch
      */
     public static MapTile[] findStoneTargets(Map map)
     {
-        MapTile[] coastalTiles = findCoastalTiles(map);
+        return toArray(prioritiseStoneTargets(map));
+    }
+
+    /**
+     * Like findStoneTargets() but hands the places out best first as they are
+     * needed, so only the places that are tried have their reward worked out.
+     *
+     * Every water tile on the coast of the player's zone is a candidate, not
+     * just the ones findCoastalTiles() thinks are worth sailing from, as long
+     * as the ZoneGraph says the player's stones could bridge to new land.
+     */
+    public static TilePrioritiser prioritiseStoneTargets(Map map)
+    {
+        Player player = map.getPlayer();
+        int zone = player.getTile().getZone();
+        if(!map.getZoneGraph().isWorthBridging(zone, player.numOfTool(Tool.STONE), player.hasTool(Tool.KEY))) return null;
+
+        CoastalFinder finder = new CoastalFinder(map, zone);
+        HashSet<MapTile> coastalTiles = finder.find();
 
-        if(coastalTiles == null || coastalTiles.length == 0) return null;
+        if(coastalTiles.size() == 0) return null;
 
         StoneTargetPrioritiser pt = new StoneTargetPrioritiser(map);
         pt.addTiles(coastalTiles);
-        return pt.toArray();
+        return pt;
+    }
+
+    /**
+     * Finds the tiles with the given tool on them that are nearest to the
+     * player, by the number of moves Heuristic.distance() says it would take to
+     * get to each of them. Only the tiles near the player are looked at.
+     *
+     * @param map The Map to search.
+     * @param tool The tool to find.
+     * @param count The most tiles to find.
+     * @return Up to count tiles, nearest first.
+     */
+    public static MapTile[] findNearestTiles(Map map, Tool tool, int count)
+    {
+        return map.getNearestTiles(tool, count, distanceFromPlayer(map));
+    }
+
+    /**
+     * Like findNearestTiles(Map, Tool, int) but for a TREE or DOOR.
+     *
+     * @return Up to count tiles, nearest first, or null if the obstacle can't be
+     * searched for.
+     */
+    public static MapTile[] findNearestTiles(Map map, Obstacle obstacle, int count)
+    {
+        return map.getNearestTiles(obstacle, count, distanceFromPlayer(map));
+    }
+
+    /**
+     * The tiles with the given tool on them as a TargetSource, nearest to the
+     * player first. Only as many tiles as are taken from it are ever looked for.
+     */
+    public static TargetSource nearestTiles(Map map, Tool tool)
+    {
+        return new NearestTiles(map.numTiles(tool), count -> findNearestTiles(map, tool, count));
+    }
+
+    /**
+     * Like nearestTiles(Map, Tool) but for a TREE or DOOR.
+     */
+    public static TargetSource nearestTiles(Map map, Obstacle obstacle)
+    {
+        return new NearestTiles(map.numTiles(obstacle), count -> findNearestTiles(map, obstacle, count));
+    }
+
+    private static ToIntFunction<MapTile> distanceFromPlayer(Map map)
+    {
+        MapTile start = map.getPlayer().getTile();
+        Direction direction = map.getPlayer().getDirection();
+        return tile -> Heuristic.distance(start, tile, direction);
+    }
+
+    private static MapTile[] toArray(TilePrioritiser prioritiser)
+    {
+        return prioritiser == null ? null : prioritiser.toArray();
     }
 
     /**
      * Finds the number of unexplored tiles in a radius around the origin. The
-     * radius is a square of length radius*2 centered on the origin.
+     * radius is a square of length radius*2 centered on the origin. Positions
+     * that haven't been seen yet count as unexplored.
+     *
+     * The count comes from the explored tiles the Map keeps count of, so it
+     * takes the same time for any radius.
      *
      * @param map The map to search.
      * @param origin The origin of the search.
@@ -150,28 +278,11 @@ public class MapSearch
      */
     public static int numUnexploredTilesNearby(Map map, MapTile origin, int radius)
     {
-        int count = 0;
-
-        int xMin = origin.getPosition().getX() - radius;
-        int yMin = origin.getPosition().getY() - radius;
-
-        int xMax = origin.getPosition().getX() + radius;
-        int yMax = origin.getPosition().getY() + radius;
-
-        MapTile tile;
-
-        for(int x = xMin; x <= xMax; x++) {
-            for(int y = yMin; y <= yMax; y++) {
-                tile = map.getTile(new MapPosition(x, y));
-                if(tile == null || !tile.isExplored()) count++;
-            }
-        }
-
-        return count;
+        return map.numUnexploredNearby(origin.getPosition().getX(), origin.getPosition().getY(), radius);
     }
     public static int numUnexploredTilesNearby(Map map, MapTile origin)
     {
-        int radius = Math.max(Map.VIEW_WIDTH/2, Map.VIEW_HEIGHT/2);
+        int radius = Math.max(map.viewWidth()/2, map.viewHeight()/2);
         return numUnexploredTilesNearby(map, origin, radius);
     }
 
@@ -185,8 +296,17 @@ public class MapSearch
      * The path will also not go through any tiles that are impossible to go through
      * do to the lack of an AXE or KEY.
      *
+     * The search is an A* search over every (tile, direction) the player could be
+     * in, costed exactly as Task would turn the path into actions: each step costs
+     * the LEFT/RIGHT turns needed to face the next tile, a CHOP or UNLOCK if the
+     * next tile is a TREE or DOOR, and a FORWARD. The returned path therefore
+     * takes the fewest actions of any path. If no start direction is given then
+     * turning is free and the path takes the fewest steps instead.
+     *
      * @param map The map to plot the path on.
      * @param start The starting MapTile.
+     * @param startDirection The direction faced on the start tile or null to
+     *                       ignore turning.
      * @param finish The goal MapTile.
      * @param avoidWater If TRUE then the path will not go through any water.
      * @param avoidTrees If TRUE then the path will not go through any trees.
@@ -194,64 +314,227 @@ public class MapSearch
      *                    tools that have not been picked up yet.
      * @return The path from start to finish MapTiles.
      */
-    public static MapTile[] getPath(Map map, MapTile start, MapTile finish, boolean avoidWater, boolean avoidTrees, boolean avoidStones)
+    public static MapTile[] getPath(Map map, MapTile start, Direction startDirection, MapTile finish, boolean avoidWater, boolean avoidTrees, boolean avoidStones)
     {
-        //if(finish.isWater() && avoidWater) return null;
+        // Each tile has a state for each direction it can be faced in, unless
+        // turning is being ignored.
+        int facings = startDirection == null ? 1 : DIRECTIONS.length;
 
-        PriorityQueue<TileNode> queue = new PriorityQueue<>();
-        HashMap<MapTile, TileNode> expanded = new HashMap<>();
+        SearchSpace space = SearchSpace.acquire();
+        space.begin(map.numTiles() * facings, map.numTiles());
 
-        TileNode current = new TileNode(start, null, 0);
-        MapTile[] neighbours;
+        try {
+            OpenList open = space.open();
 
-        Direction direction;
-        int cost;
+            int state = start.getIndex() * facings + (startDirection == null ? 0 : startDirection.ordinal());
+            space.reach(state, 0, -1);
+            open.add(estimate(start, finish, startDirection), state);
 
-        while(current.getValue() != finish) {
-            neighbours = current.getValue().getNeighbours();
-            for(MapTile neighbour : neighbours) {
+            int goal = -1;
+            int expanded = 0;
+            MapTile tile, neighbour;
+            Direction facing;
+            int next, cost;
 
-                if (expanded.containsKey(neighbour)) continue;
+            while(!open.isEmpty()) {
+                state = OpenList.state(open.poll());
 
-                if(map.getPlayer().isSailing()) {
-                    if(!neighbour.isWater() && neighbour != finish) continue;
-                }
-                else {
-                    if(neighbour.getObstacle() == Obstacle.WILDERNESS) continue;
-                    if (neighbour.getObstacle() == Obstacle.WALL) continue;
-                    if (neighbour.getObstacle() == Obstacle.WATER && avoidWater && neighbour != finish) continue;
-                    if (neighbour.getObstacle() == Obstacle.TREE && (avoidTrees || !map.getPlayer().hasTool(Tool.AXE))) continue;
-                    if (neighbour.getObstacle() == Obstacle.DOOR && !map.getPlayer().hasTool(Tool.KEY)) continue;
-                    if (neighbour.getTool() == Tool.STONE && avoidStones) continue;
+                // Skip entries for states that have since been reached more cheaply.
+                if(!space.close(state)) continue;
+                expanded++;
+
+                tile = map.getTileByIndex(state / facings);
+                if(tile == finish) {
+                    goal = state;
+                    break;
                 }
 
-                if(current.getValue().north() == neighbour) direction = Direction.NORTH;
-                else if(current.getValue().east() == neighbour) direction = Direction.EAST;
-                else if(current.getValue().south() == neighbour) direction = Direction.SOUTH;
-                else direction = Direction.WEST;
+                facing = startDirection == null ? null : DIRECTIONS[state % facings];
 
-                cost = current.getCost() + Heuristic.distance(neighbour, finish, direction);
-                queue.add(new TileNode(neighbour, current.getValue(), cost));
+                for(Direction direction : DIRECTIONS) {
+                    neighbour = tile.getNeighbour(direction);
+                    if(neighbour == null) continue;
+
+                    next = neighbour.getIndex() * facings + (startDirection == null ? 0 : direction.ordinal());
+                    if(space.isClosed(next)) continue;
+                    if(!passable(map, neighbour, neighbour == finish, avoidWater, avoidTrees, avoidStones)) continue;
+
+                    cost = space.cost(state) + 1;
+                    if(facing != null) cost += Heuristic.turns(facing, direction);
+                    if(neighbour.getObstacle() == Obstacle.TREE || neighbour.getObstacle() == Obstacle.DOOR) cost++;
+                    if(cost >= space.cost(next)) continue;
+
+                    space.reach(next, cost, state);
+                    open.add(cost + estimate(neighbour, finish, facing == null ? null : direction), next);
+                }
             }
-            expanded.put(current.getValue(), current);
-            current = queue.poll();
-            if(current == null) return null;
+
+            expansions.addAndGet(expanded);
+
+            if(goal == -1) return null;
+            return buildPath(map, space, goal, facings);
+        }
+        finally {
+            space.release();
         }
+    }
+    public static MapTile[] getPath(Map map, MapTile start, MapTile finish, boolean avoidWater, boolean avoidTrees, boolean avoidStones)
+    {
+        return getPath(map, start, null, finish, avoidWater, avoidTrees, avoidStones);
+    }
+    public static MapTile[] getPath(Map map, MapTile start, MapTile finish)
+    {
+        return getPath(map, start, finish, false, false, false);
+    }
+
+    /**
+     * Finds the optimal path from the start MapTile to the best of the given
+     * targets that can be reached, with the same restrictions and costs as
+     * getPath(). All of the targets are searched for at once in a single
+     * Dijkstra search rather than one search per target, so unreachable targets
+     * cost nothing extra.
+     *
+     * Without weights the best target is the first reachable target in the
+     * array, so the targets should be given from highest to lowest priority.
+     * With weights the best target is the one with the lowest cost to reach
+     * plus weight, so a weight acts as a penalty of that many extra actions.
+     *
+     * @param map The map to plot the path on.
+     * @param start The starting MapTile.
+     * @param startDirection The direction faced on the start tile or null to
+     *                       ignore turning.
+     * @param targets The goal MapTiles.
+     * @param weights The non-negative weight of each target or null to prefer
+     *                targets in the order they are given.
+     * @param avoidWater If TRUE then the path will not go through any water.
+     * @param avoidTrees If TRUE then the path will not go through any trees.
+     * @param avoidStones If TRUE then the path will no go into any stepping stone
+     *                    tools that have not been picked up yet.
+     * @return The path from start to the best reachable target or null if none
+     * of the targets can be reached.
+     */
+    public static MapTile[] getPath(Map map, MapTile start, Direction startDirection, MapTile[] targets, int[] weights, boolean avoidWater, boolean avoidTrees, boolean avoidStones)
+    {
+        int facings = startDirection == null ? 1 : DIRECTIONS.length;
+
+        SearchSpace space = SearchSpace.acquire();
+        space.begin(map.numTiles() * facings, map.numTiles());
+
+        try {
+            // Each target is labelled with its position in the targets.
+            for(int i = targets.length - 1; i >= 0; i--) space.label(targets[i].getIndex(), i);
+
+            OpenList open = space.open();
+
+            int state = start.getIndex() * facings + (startDirection == null ? 0 : startDirection.ordinal());
+            space.reach(state, 0, -1);
+            open.add(0, state);
+
+            int goal = -1;
+            int expanded = 0;
+            int bestRank = targets.length;
+            long bestScore = Long.MAX_VALUE;
+            MapTile tile, neighbour;
+            Direction facing;
+            int next, cost, rank;
+
+            while(!open.isEmpty()) {
+                state = OpenList.state(open.poll());
+
+                if(!space.close(state)) continue;
+                expanded++;
+
+                // Every target left would score worse than the best one found.
+                if(weights != null && space.cost(state) >= bestScore) break;
+
+                tile = map.getTileByIndex(state / facings);
+                rank = space.label(tile.getIndex());
+
+                if(rank != -1) {
+                    if(weights == null && rank < bestRank) {
+                        goal = state;
+                        bestRank = rank;
+                        if(rank == 0) break;
+                    }
+                    else if(weights != null && (long) space.cost(state) + weights[rank] < bestScore) {
+                        goal = state;
+                        bestScore = (long) space.cost(state) + weights[rank];
+                    }
+                }
+
+                // A target that could only be entered because it is a target, i.e.
+                // land while sailing, can't be passed through on the way to another.
+                if(tile != start && !passable(map, tile, false, avoidWater, avoidTrees, avoidStones)) continue;
+
+                facing = startDirection == null ? null : DIRECTIONS[state % facings];
+
+                for(Direction direction : DIRECTIONS) {
+                    neighbour = tile.getNeighbour(direction);
+                    if(neighbour == null) continue;
 
-        ArrayList<MapTile> tiles = new ArrayList<>();
+                    next = neighbour.getIndex() * facings + (startDirection == null ? 0 : direction.ordinal());
+                    if(space.isClosed(next)) continue;
+                    if(!passable(map, neighbour, space.label(neighbour.getIndex()) != -1, avoidWater, avoidTrees, avoidStones)) continue;
+
+                    cost = space.cost(state) + 1;
+                    if(facing != null) cost += Heuristic.turns(facing, direction);
+                    if(neighbour.getObstacle() == Obstacle.TREE || neighbour.getObstacle() == Obstacle.DOOR) cost++;
+                    if(cost >= space.cost(next)) continue;
+
+                    space.reach(next, cost, state);
+                    open.add(cost, next);
+                }
+            }
 
-        while(current != null) {
-            tiles.add(0, current.getValue());
-            current = expanded.get(current.getParent());
+            expansions.addAndGet(expanded);
+
+            if(goal == -1) return null;
+            return buildPath(map, space, goal, facings);
+        }
+        finally {
+            space.release();
         }
+    }
 
-        MapTile[] path = new MapTile[tiles.size()];
-        tiles.toArray(path);
+    /**
+     * Follows the parents of the goal state back to the start to form a path.
+     */
+    private static MapTile[] buildPath(Map map, SearchSpace space, int goal, int facings)
+    {
+        int length = 0;
+        for(int state = goal; state != -1; state = space.parent(state)) length++;
+
+        MapTile[] path = new MapTile[length];
+        for(int state = goal; state != -1; state = space.parent(state)) path[--length] = map.getTileByIndex(state / facings);
 
         return path;
     }
-    public static MapTile[] getPath(Map map, MapTile start, MapTile finish)
+
+    /**
+     * The A* heuristic for getPath(), which never overestimates the number of
+     * actions left.
+     */
+    private static int estimate(MapTile tile, MapTile finish, Direction facing)
     {
-        return getPath(map, start, finish, false, false, false);
+        if(facing == null) return Heuristic.manhattan(tile, finish);
+        return Heuristic.distance(tile, finish, facing);
+    }
+
+    /**
+     * Whether the path from getPath() is allowed to step into the given tile.
+     */
+    private static boolean passable(Map map, MapTile tile, boolean target, boolean avoidWater, boolean avoidTrees, boolean avoidStones)
+    {
+        // The game keeps the player on their raft if they dock on a STONE, and
+        // then floods the tile when they step off it, so never dock on one.
+        if(map.getPlayer().isSailing()) return tile.isWater() || (target && tile.getTool() != Tool.STONE);
+
+        if(tile.getObstacle() == Obstacle.WILDERNESS) return false;
+        if(tile.getObstacle() == Obstacle.WALL) return false;
+        if(tile.getObstacle() == Obstacle.WATER && avoidWater && !target) return false;
+        if(tile.getObstacle() == Obstacle.TREE && (avoidTrees || !map.getPlayer().hasTool(Tool.AXE))) return false;
+        if(tile.getObstacle() == Obstacle.DOOR && !map.getPlayer().hasTool(Tool.KEY)) return false;
+        if(tile.getTool() == Tool.STONE && avoidStones) return false;
+        return true;
     }
 }
@@ -0,0 +1,50 @@
+package treasurehunt.search;
+
+import treasurehunt.map.MapTile;
+
+import java.util.function.IntFunction;
+
+/**
+ * A TargetSource of the tiles nearest to the player, nearest first. Each call
+ * to next() asks for the tiles nearest to the player up to and including the
+ * new ones, and hands out only those that weren't handed out before.
+ *
+ * Every tile is worth the same, so the one with the shortest path wins.
+ */
+public class NearestTiles implements TargetSource
+{
+    private final IntFunction<MapTile[]> nearest;
+    private final int total;
+    private int taken = 0;
+
+    /**
+     * @param total The number of tiles there are to find.
+     * @param nearest Finds the given number of tiles nearest to the player,
+     *                nearest first.
+     */
+    public NearestTiles(int total, IntFunction<MapTile[]> nearest)
+    {
+        this.total = total;
+        this.nearest = nearest;
+    }
+
+    @Override
+    public boolean isEmpty() { return taken >= total; }
+
+    @Override
+    public TileReward[] next(int count)
+    {
+        if(isEmpty()) return new TileReward[0];
+
+        MapTile[] tiles = nearest.apply(taken + count);
+        if(tiles == null || tiles.length <= taken) {
+            taken = total;
+            return new TileReward[0];
+        }
+
+        TileReward[] batch = new TileReward[tiles.length - taken];
+        for(int i = 0; i < batch.length; i++) batch[i] = new TileReward(tiles[taken + i], 0);
+        taken = tiles.length;
+        return batch;
+    }
+}
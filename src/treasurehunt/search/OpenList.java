@@ -0,0 +1,72 @@
+package treasurehunt.search;
+
+import java.util.Arrays;
+
+/**
+ * The OpenList is a binary min-heap of search states used as the frontier of
+ * A* and Dijkstra style searches. Each entry packs a priority and a state into
+ * a single long, so adding and polling states never allocates once the heap
+ * has grown to fit the search.
+ *
+ * States are non-negative ints (e.g. a tile index) and entries with the same
+ * priority are polled in order of their state.
+ */
+public class OpenList
+{
+    private long[] heap = new long[64];
+    private int size = 0;
+
+    /**
+     * Adds a state with the given priority to the list.
+     *
+     * @param priority The priority of the state, lowest is polled first.
+     * @param state The state to add.
+     */
+    public void add(int priority, int state)
+    {
+        if(size == heap.length) heap = Arrays.copyOf(heap, size * 2);
+
+        long entry = ((long) priority << 32) | state;
+        int i = size++;
+
+        while(i > 0) {
+            int parent = (i - 1) >>> 1;
+            if(heap[parent] <= entry) break;
+            heap[i] = heap[parent];
+            i = parent;
+        }
+
+        heap[i] = entry;
+    }
+
+    /**
+     * Removes the entry with the lowest priority from the list.
+     *
+     * @return The packed entry, use state() and priority() to unpack it.
+     */
+    public long poll()
+    {
+        long top = heap[0];
+        long last = heap[--size];
+        int i = 0;
+
+        while(true) {
+            int child = 2 * i + 1;
+            if(child >= size) break;
+            if(child + 1 < size && heap[child + 1] < heap[child]) child++;
+            if(last <= heap[child]) break;
+            heap[i] = heap[child];
+            i = child;
+        }
+
+        heap[i] = last;
+        return top;
+    }
+
+    public boolean isEmpty() { return size == 0; }
+    public int size() { return size; }
+    public void clear() { size = 0; }
+
+    public static int state(long entry) { return (int) entry; }
+    public static int priority(long entry) { return (int) (entry >>> 32); }
+}
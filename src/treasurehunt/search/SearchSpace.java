@@ -0,0 +1,173 @@
+package treasurehunt.search;
+
+import java.util.ArrayDeque;
+import java.util.Arrays;
+
+/**
+ * A SearchSpace holds the working memory of a search over a Map: the cost and
+ * parent of every state, which states have been reached or expanded, a label
+ * for every tile and the open list or queue of states still to expand.
+ *
+ * SearchSpaces are pooled and reused, so searches should acquire() one, use it
+ * and then release() it. Rather than clearing every array between searches,
+ * each search is given a new generation and an entry only counts if it was
+ * stamped with the current generation, so starting a search is O(1) and a
+ * search allocates nothing once the arrays have grown to fit the map.
+ *
+ * Each thread has its own pool so separate games can be searched at once, and
+ * a search may acquire a second SearchSpace while it is still using one.
+ */
+public class SearchSpace
+{
+    private static final ThreadLocal<ArrayDeque<SearchSpace>> POOL = ThreadLocal.withInitial(ArrayDeque::new);
+
+    private int generation = 0;
+
+    // Per state.
+    private int[] costs = new int[0];
+    private int[] parents = new int[0];
+    private int[] reached = new int[0];
+    private int[] closed = new int[0];
+
+    // Per tile.
+    private int[] labels = new int[0];
+    private int[] labelled = new int[0];
+
+    private final OpenList open = new OpenList();
+
+    private int[] queue = new int[64];
+    private int head = 0;
+    private int tail = 0;
+
+    private SearchSpace() {}
+
+    /**
+     * Takes a SearchSpace from the current thread's pool, or creates a new one
+     * if the pool is empty.
+     */
+    public static SearchSpace acquire()
+    {
+        SearchSpace space = POOL.get().poll();
+        return space == null ? new SearchSpace() : space;
+    }
+
+    /**
+     * Returns the SearchSpace to the current thread's pool. It must not be used
+     * again after it has been released.
+     */
+    public void release()
+    {
+        POOL.get().push(this);
+    }
+
+    /**
+     * Prepares the SearchSpace for a new search, forgetting everything from the
+     * previous search.
+     *
+     * @param numStates The number of states that will be searched.
+     * @param numTiles The number of tiles that may be labelled.
+     */
+    public void begin(int numStates, int numTiles)
+    {
+        if(costs.length < numStates) {
+            int capacity = Math.max(numStates, costs.length * 2);
+            costs = new int[capacity];
+            parents = new int[capacity];
+            reached = Arrays.copyOf(reached, capacity);
+            closed = Arrays.copyOf(closed, capacity);
+        }
+
+        if(labels.length < numTiles) {
+            int capacity = Math.max(numTiles, labels.length * 2);
+            labels = new int[capacity];
+            labelled = Arrays.copyOf(labelled, capacity);
+        }
+
+        if(generation == Integer.MAX_VALUE) {
+            Arrays.fill(reached, 0);
+            Arrays.fill(closed, 0);
+            Arrays.fill(labelled, 0);
+            generation = 0;
+        }
+
+        generation++;
+        open.clear();
+        head = tail = 0;
+    }
+
+    /**
+     * Records the cost of reaching a state and the state it was reached from.
+     *
+     * @param state The state that was reached.
+     * @param cost The cost of reaching the state.
+     * @param parent The state it was reached from or -1 for the start.
+     */
+    public void reach(int state, int cost, int parent)
+    {
+        costs[state] = cost;
+        parents[state] = parent;
+        reached[state] = generation;
+    }
+
+    public boolean isReached(int state) { return reached[state] == generation; }
+
+    /**
+     * The cost of reaching the given state, or Integer.MAX_VALUE if it hasn't
+     * been reached.
+     */
+    public int cost(int state) { return isReached(state) ? costs[state] : Integer.MAX_VALUE; }
+
+    public int parent(int state) { return parents[state]; }
+
+    /**
+     * Marks the given state as expanded.
+     *
+     * @return FALSE if the state had already been expanded, TRUE otherwise.
+     */
+    public boolean close(int state)
+    {
+        if(closed[state] == generation) return false;
+        closed[state] = generation;
+        return true;
+    }
+
+    public boolean isClosed(int state) { return closed[state] == generation; }
+
+    /**
+     * Labels a tile for the rest of the search, i.e. as a target.
+     */
+    public void label(int tile, int label)
+    {
+        labels[tile] = label;
+        labelled[tile] = generation;
+    }
+
+    /**
+     * The label of the given tile or -1 if it hasn't been labelled.
+     */
+    public int label(int tile) { return labelled[tile] == generation ? labels[tile] : -1; }
+
+    /**
+     * The open list of a best first search.
+     */
+    public OpenList open() { return open; }
+
+    /**
+     * Adds a state to the back of the queue of a breadth first search.
+     */
+    public void enqueue(int state)
+    {
+        if(tail == queue.length) queue = Arrays.copyOf(queue, tail * 2);
+        queue[tail++] = state;
+    }
+
+    /**
+     * Removes the state at the front of the queue of a breadth first search.
+     *
+     * @return The state or -1 if the queue is empty.
+     */
+    public int dequeue()
+    {
+        return head == tail ? -1 : queue[head++];
+    }
+}
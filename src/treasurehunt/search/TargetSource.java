@@ -0,0 +1,26 @@
+package treasurehunt.search;
+
+import treasurehunt.map.MapTile;
+
+/**
+ * A source of targets to plan a path to, handed out best first a few at a time
+ * so that a caller which reaches one of the first targets never pays for
+ * finding the rest.
+ *
+ * Each target comes with its reward, so a caller can trade a better target
+ * against a shorter path to a worse one. Rewards are only comparable between
+ * targets from the same source.
+ */
+public interface TargetSource
+{
+    /**
+     * Whether there are no targets left to hand out.
+     */
+    boolean isEmpty();
+
+    /**
+     * Takes up to the given number of targets that haven't been handed out
+     * yet, best first, along with their rewards.
+     */
+    TileReward[] next(int count);
+}
@@ -5,23 +5,38 @@ import treasurehunt.map.MapTile;
 /**
  * A way to compare MapTile based on arbitrary rewards. TileReward can then be
  * easily sorted into any Collection that is ordered.
+ *
+ * A TileReward may only hold an upper bound of the tile's reward, in which case
+ * it comes after any real reward that is just as high, since its tile can do no
+ * better. Other ties are broken by the tile's index so the order never depends
+ * on how the tiles were found.
  */
 public class TileReward implements Comparable<TileReward>
 {
     private final MapTile tile;
     private final int reward;
+    private final boolean bound;
 
-    public TileReward(MapTile tile, int reward)
+    public TileReward(MapTile tile, int reward, boolean bound)
     {
         this.tile = tile;
         this.reward = reward;
+        this.bound = bound;
     }
+    public TileReward(MapTile tile, int reward) { this(tile, reward, false); }
 
     public MapTile getTile() { return tile; }
     public int getReward() { return reward; }
 
+    /**
+     * Whether the reward is only an upper bound of the tile's real reward.
+     */
+    public boolean isBound() { return bound; }
+
     @Override
     public int compareTo(TileReward tile) {
-        return tile.getReward() - reward;
+        if(reward != tile.getReward()) return Integer.compare(tile.getReward(), reward);
+        if(bound != tile.isBound()) return bound ? 1 : -1;
+        return Integer.compare(this.tile.getIndex(), tile.getTile().getIndex());
     }
 }
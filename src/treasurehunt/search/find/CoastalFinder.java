@@ -1,7 +1,6 @@
 package treasurehunt.search.find;
 
 import treasurehunt.map.Map;
-import treasurehunt.map.MapTile;
 
 public class CoastalFinder extends TileFinder
 {
@@ -14,14 +13,14 @@ public class CoastalFinder extends TileFinder
     }
 
     @Override
-    protected boolean validMatch(MapTile tile)
+    protected boolean validMatch(int tile)
     {
-        return tile.isWater();
+        return store.isWater(tile);
     }
 
     @Override
-    protected boolean validNeighbour(MapTile tile, MapTile neighbour)
+    protected boolean validNeighbour(int tile, int neighbour)
     {
-        return (tile.getZone() == zone && (neighbour.getZone() == zone || neighbour.isWater()));
+        return (store.zone(tile) == zone && (store.zone(neighbour) == zone || store.isWater(neighbour)));
     }
 }
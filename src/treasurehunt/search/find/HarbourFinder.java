@@ -3,7 +3,6 @@ package treasurehunt.search.find;
 import treasurehunt.constant.Obstacle;
 import treasurehunt.constant.Tool;
 import treasurehunt.map.Map;
-import treasurehunt.map.MapTile;
 
 public class HarbourFinder extends TileFinder
 {
@@ -16,17 +15,18 @@ public class HarbourFinder extends TileFinder
     }
 
     @Override
-    protected boolean validMatch(MapTile tile)
+    protected boolean validMatch(int tile)
     {
-        return(tile.getObstacle() == Obstacle.NONE
-        ||(tile.getObstacle() == Obstacle.DOOR && map.getPlayer().hasTool(Tool.KEY))
-        ||(tile.getObstacle() == Obstacle.TREE && map.getPlayer().hasTool(Tool.AXE) && !avoidTrees)
-        ||(tile.getObstacle() == Obstacle.TREE && map.getPlayer().hasTool(Tool.AXE) && avoidTrees && tile.numObstaclesInZone(Obstacle.TREE) > 1));
+        Obstacle obstacle = store.obstacle(tile);
+        return(obstacle == Obstacle.NONE
+        ||(obstacle == Obstacle.DOOR && map.getPlayer().hasTool(Tool.KEY))
+        ||(obstacle == Obstacle.TREE && map.getPlayer().hasTool(Tool.AXE) && !avoidTrees)
+        ||(obstacle == Obstacle.TREE && map.getPlayer().hasTool(Tool.AXE) && avoidTrees && map.getZoneGraph().numTrees(store.zone(tile)) > 1));
     }
 
     @Override
-    protected boolean validNeighbour(MapTile tile, MapTile neighbour)
+    protected boolean validNeighbour(int tile, int neighbour)
     {
-        return tile.isWater() || neighbour.isWater();
+        return store.isWater(tile) || store.isWater(neighbour);
     }
 }
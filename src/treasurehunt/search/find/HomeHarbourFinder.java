@@ -3,8 +3,6 @@ package treasurehunt.search.find;
 import treasurehunt.constant.Obstacle;
 import treasurehunt.constant.Tool;
 import treasurehunt.map.Map;
-import treasurehunt.map.MapPosition;
-import treasurehunt.map.MapTile;
 
 public class HomeHarbourFinder extends TileFinder
 {
@@ -13,21 +11,22 @@ public class HomeHarbourFinder extends TileFinder
     public HomeHarbourFinder(Map map)
     {
         super(map);
-        home = map.getTile(new MapPosition(0, 0)).getZone();
+        home = map.getTile(0, 0).getZone();
     }
 
     @Override
-    protected boolean validMatch(MapTile tile)
+    protected boolean validMatch(int tile)
     {
-        return(home == tile.getZone()
-        &&(tile.getObstacle() == Obstacle.NONE
-        ||(tile.getObstacle() == Obstacle.DOOR && map.getPlayer().hasTool(Tool.KEY))
-        ||(tile.getObstacle() == Obstacle.TREE && map.getPlayer().hasTool(Tool.AXE))));
+        Obstacle obstacle = store.obstacle(tile);
+        return(home == store.zone(tile)
+        &&(obstacle == Obstacle.NONE
+        ||(obstacle == Obstacle.DOOR && map.getPlayer().hasTool(Tool.KEY))
+        ||(obstacle == Obstacle.TREE && map.getPlayer().hasTool(Tool.AXE))));
     }
 
     @Override
-    protected boolean validNeighbour(MapTile tile, MapTile neighbour)
+    protected boolean validNeighbour(int tile, int neighbour)
     {
-        return tile.isWater() || neighbour.isWater();
+        return store.isWater(tile) || store.isWater(neighbour);
     }
 }
@@ -1,48 +1,63 @@
 package treasurehunt.search.find;
 
+import treasurehunt.constant.Direction;
 import treasurehunt.map.Map;
 import treasurehunt.map.MapTile;
+import treasurehunt.map.TileStore;
+import treasurehunt.search.SearchSpace;
 
 import java.util.HashSet;
-import java.util.LinkedList;
 
 /**
  * TileFinder is a search tool for finding MapTile(s) on a given Map based on
  * specific requirements depending on the implementation.
+ *
+ * The search walks the Map's TileStore by tile index and the requirements are
+ * checked against the store too, so a MapTile is only looked up for a match.
  */
 public abstract class TileFinder
 {
+    private static final int NUM_DIRECTIONS = Direction.values().length;
+
     protected final Map map;
+    protected final TileStore store;
 
     public TileFinder(Map map)
     {
         this.map = map;
+        this.store = map.getTileStore();
     }
 
     public HashSet<MapTile> find(MapTile start)
     {
-        HashSet<MapTile> expanded = new HashSet<>();
-        LinkedList<MapTile> unexpanded = new LinkedList<>();
-
-        HashSet<MapTile> matches = new HashSet<>();
+        SearchSpace space = SearchSpace.acquire();
+        space.begin(map.numTiles(), 0);
 
-        unexpanded.add(start);
-        expanded.add(start);
+        try {
+            HashSet<MapTile> matches = new HashSet<>();
 
-        MapTile tile;
+            space.enqueue(start.getIndex());
+            space.close(start.getIndex());
 
-        while((tile = unexpanded.poll()) != null) {
+            int index, next;
 
-            if(validMatch(tile)) matches.add(tile);
+            while((index = space.dequeue()) != -1) {
+                if(validMatch(index)) matches.add(map.getTileByIndex(index));
 
-            for(MapTile neighbour : tile.getNeighbours()) {
-                if(!validNeighbour(tile, neighbour) || expanded.contains(neighbour)) continue;
-                expanded.add(neighbour);
-                unexpanded.add(neighbour);
+                for(int direction = 0; direction < NUM_DIRECTIONS; direction++) {
+                    next = store.neighbour(index, direction);
+                    if(next == -1 || space.isClosed(next)) continue;
+                    if(!validNeighbour(index, next)) continue;
+                    space.close(next);
+                    space.enqueue(next);
+                }
             }
-        }
 
-        return matches;
+            return matches;
+        }
+        finally {
+            space.release();
+        }
     }
 
     public HashSet<MapTile> find()
@@ -51,24 +66,24 @@ public abstract class TileFinder
     }
 
     /**
-     * Whether or not a given MapTile constitutes a tile that the TileFinder is
+     * Whether or not a given tile constitutes a tile that the TileFinder is
      * trying to find.
      *
-     * @param tile The tile to be checked for validity.
+     * @param tile The index of the tile to be checked for validity.
      * @return TRUE if the tile is a valid match, FALSE otherwise.
      */
-    protected abstract boolean validMatch(MapTile tile);
+    protected abstract boolean validMatch(int tile);
 
     /**
      * Whether or not a given tile is a valid neighbour during the searching
-     * process. Certain MapTiles may wish to be exluded from checking their
+     * process. Certain tiles may wish to be exluded from checking their
      * match validity or from propogating the search through any of their
-     * neighbours. These MapTiles can be set to FALSE as a validNeighbour() to
+     * neighbours. These tiles can be set to FALSE as a validNeighbour() to
      * remove them and their neighbours from the search as potential candidates.
      *
-     * @param tile The origin tile.
-     * @param neighbour The neighbour to check the validity of.
+     * @param tile The index of the origin tile.
+     * @param neighbour The index of the neighbour to check the validity of.
      * @return TRUE if the neighbour is valid, FALSE otherwise.
      */
-    protected abstract boolean validNeighbour(MapTile tile, MapTile neighbour);
+    protected abstract boolean validNeighbour(int tile, int neighbour);
 }
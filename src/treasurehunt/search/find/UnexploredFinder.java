@@ -2,7 +2,6 @@ package treasurehunt.search.find;
 
 import treasurehunt.constant.Obstacle;
 import treasurehunt.map.Map;
-import treasurehunt.map.MapTile;
 
 public class UnexploredFinder extends TileFinder {
 
@@ -12,16 +11,17 @@ public class UnexploredFinder extends TileFinder {
     }
 
     @Override
-    protected boolean validMatch(MapTile tile)
+    protected boolean validMatch(int tile)
     {
-        return !tile.isExplored();
+        return !store.isExplored(tile);
     }
 
     @Override
-    protected boolean validNeighbour(MapTile tile, MapTile neighbour)
+    protected boolean validNeighbour(int tile, int neighbour)
     {
-        return !((neighbour.getObstacle() == Obstacle.WALL || neighbour.getObstacle() == Obstacle.WILDERNESS)
-        || (!map.getPlayer().isSailing() && neighbour.getObstacle() == Obstacle.WATER)
-        || (map.getPlayer().isSailing() && neighbour.getObstacle() != Obstacle.WATER));
+        Obstacle obstacle = store.obstacle(neighbour);
+        return !((obstacle == Obstacle.WALL || obstacle == Obstacle.WILDERNESS)
+        || (!map.getPlayer().isSailing() && obstacle == Obstacle.WATER)
+        || (map.getPlayer().isSailing() && obstacle != Obstacle.WATER));
     }
 }
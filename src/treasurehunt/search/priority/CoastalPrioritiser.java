@@ -2,33 +2,37 @@ package treasurehunt.search.priority;
 
 import treasurehunt.constant.Tool;
 import treasurehunt.map.Map;
-import treasurehunt.map.MapPosition;
 import treasurehunt.map.MapTile;
+import treasurehunt.map.ZoneGraph;
 import treasurehunt.search.Heuristic;
 
+import java.util.HashMap;
+
+/**
+ * Ranks the water tiles the player could set sail onto. Only water that the
+ * ZoneGraph says could lead anywhere new is valid, which is worked out once
+ * for each body of water.
+ */
 public class CoastalPrioritiser extends TilePrioritiser
 {
+    private final ZoneGraph graph;
+    private final HashMap<Integer, Boolean> worthSailing = new HashMap<>();
+
     public CoastalPrioritiser(Map map)
     {
         super(map);
+        this.graph = map.getZoneGraph();
     }
 
     @Override
     public int reward(MapTile tile)
     {
-        MapTile[] zoneTiles = tile.zoneTiles();
-        int numExplored = 0;
-
-        for (MapTile zoneTile : zoneTiles) {
-            if (zoneTile.isExplored()) numExplored++;
-        }
-
-        int reward = (zoneTiles.length - numExplored) + (tile.numAdjacentZones() - 1) / Heuristic.distance(map.getPlayer().getTile(), tile, map.getPlayer().getDirection());
+        int reward = (tile.zoneSize() - tile.numExploredInZone()) + (tile.numAdjacentZones() - 1) / Math.max(1, Heuristic.distance(map.getPlayer().getTile(), tile, map.getPlayer().getDirection()));
 
-        int homeZone = map.getTile(new MapPosition(0, 0)).getZone();
+        int homeZone = map.getTile(0, 0).getZone();
 
         if(map.getPlayer().hasTool(Tool.GOLD) && tile.isAdjacentTo(homeZone))
-            reward += Map.MAX_WIDTH * Map.MAX_HEIGHT;
+            reward += map.maxWidth() * map.maxHeight();
 
         return reward;
     }
@@ -36,6 +40,7 @@ public class CoastalPrioritiser extends TilePrioritiser
     @Override
     public boolean valid(MapTile tile)
     {
-        return true;
+        int from = map.getPlayer().getTile().getZone();
+        return worthSailing.computeIfAbsent(tile.getZone(), water -> graph.isWorthSailing(from, water));
     }
 }
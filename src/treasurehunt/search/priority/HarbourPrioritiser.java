@@ -4,32 +4,41 @@ import treasurehunt.constant.Obstacle;
 import treasurehunt.constant.Tool;
 import treasurehunt.map.Map;
 import treasurehunt.map.MapTile;
+import treasurehunt.map.ZoneGraph;
 import treasurehunt.search.MapSearch;
 
+/**
+ * Ranks the land tiles the player could dock at. When the player needs to be
+ * able to escape, only land that the ZoneGraph says has a tree left to make a
+ * new raft from, or a stone to bridge out with, is valid.
+ */
 public class HarbourPrioritiser extends TilePrioritiser
 {
     private final boolean canEscape;
+    private final ZoneGraph graph;
 
     public HarbourPrioritiser(Map map, boolean canEscape)
     {
         super(map);
         this.canEscape = canEscape;
+        this.graph = map.getZoneGraph();
     }
 
     @Override
     public int reward(MapTile tile)
     {
         int reward = (MapSearch.numUnexploredTilesNearby(map, tile) + tile.zoneReward());
-        if(tile.getObstacle() == Obstacle.TREE) reward -= Map.MAX_WIDTH * Map.MAX_HEIGHT;
+        if(tile.getObstacle() == Obstacle.TREE) reward -= map.maxWidth() * map.maxHeight();
         return reward;
     }
 
     @Override
     public boolean valid(MapTile tile)
     {
-        return (!canEscape
-        || (tile.getObstacle() == Obstacle.TREE && tile.numObstaclesInZone(Obstacle.TREE) > 1)
-        || (tile.getObstacle() != Obstacle.TREE && tile.zoneContainsTree())
-        || (tile.zoneContainsTool(Tool.STONE)));
+        if(!canEscape) return true;
+
+        // Docking on a tree means cutting it down, so it can't be the raft.
+        int trees = graph.numTrees(tile.getZone()) - (tile.getObstacle() == Obstacle.TREE ? 1 : 0);
+        return trees > 0 || graph.numTools(tile.getZone(), Tool.STONE) > 0;
     }
 }
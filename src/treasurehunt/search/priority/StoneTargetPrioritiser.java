@@ -3,48 +3,67 @@ package treasurehunt.search.priority;
 import treasurehunt.constant.Tool;
 import treasurehunt.map.Map;
 import treasurehunt.map.MapTile;
-import treasurehunt.search.MapSearch;
+import treasurehunt.map.StoneBridges;
 
+/**
+ * Ranks coastal tiles by the best zone a bridge of stepping stones starting
+ * from the tile could reach with the stones the player has. The bridges are
+ * worked out for the whole coast at once by the Map's StoneBridges, the same
+ * ones that are the stone edges of its ZoneGraph.
+ *
+ * Working the bridges out takes a search over all of the water, so each tile is
+ * first given a bound from the land near it and the bridges are only asked for
+ * once a tile's bound brings it to the front.
+ */
 public class StoneTargetPrioritiser extends TilePrioritiser
 {
+    private final StoneBridges bridges;
+
     public StoneTargetPrioritiser(Map map)
     {
         super(map);
+        this.bridges = map.getStoneBridges();
     }
 
     @Override
     public int reward(MapTile tile)
     {
-        int reward;
-        int bestReward = 0;
+        return bridges.reward(tile, map.getPlayer().numOfTool(Tool.STONE));
+    }
 
-        MapTile[] harbourTiles = MapSearch.findHabourTiles(map, tile, false, true);
+    /**
+     * A bridge starts with a stone on the tile and lands next to its last
+     * stone, so it can't land further from the tile than the number of stones
+     * it takes. The best reward any land within that many steps could give is
+     * therefore a bound, and a tile with no land within reach can't be valid.
+     */
+    @Override
+    public int bound(MapTile tile)
+    {
+        int stones = map.getPlayer().numOfTool(Tool.STONE);
+        int zone = map.getPlayer().getTile().getZone();
+        int x = tile.getPosition().getX();
+        int y = tile.getPosition().getY();
+        int bound = INVALID;
 
-        for(MapTile harbour : harbourTiles) {
-            if(harbour.getZone() == map.getPlayer().getTile().getZone()) continue;
+        for(int dx = -stones; dx <= stones; dx++) {
+            int reach = stones - Math.abs(dx);
 
-            MapTile[] path = MapSearch.getPath(map, tile, harbour, false, true, true);
-            if(path == null || (path.length - 1) > map.getPlayer().numOfTool(Tool.STONE)) continue;
+            for(int dy = -reach; dy <= reach; dy++) {
+                MapTile landing = map.getTile(x + dx, y + dy);
+                if(landing == null || !landing.isWalkable() || landing.getZone() == zone) continue;
 
-            reward = (harbour.zoneReward() + harbour.zoneSize()) / path.length;
-            if(reward > bestReward) bestReward = reward;
+                int reward = (landing.zoneReward() + landing.zoneSize()) / (Math.abs(dx) + Math.abs(dy) + 1);
+                if(reward > bound) bound = reward;
+            }
         }
 
-        return bestReward;
+        return bound;
     }
 
     @Override
     public boolean valid(MapTile tile)
     {
-        MapTile[] harbourTiles = MapSearch.findHabourTiles(map, tile, false, true);
-
-        for(MapTile harbour : harbourTiles) {
-            if(harbour.getZone() == map.getPlayer().getTile().getZone()) continue;
-            MapTile[] path = MapSearch.getPath(map, tile, harbour, false, true, true);
-            if(path == null || (path.length - 1) > map.getPlayer().numOfTool(Tool.STONE)) continue;
-            return true;
-        }
-
-        return false;
+        return bridges.canBridge(tile, map.getPlayer().numOfTool(Tool.STONE));
     }
 }
@@ -2,53 +2,134 @@ package treasurehunt.search.priority;
 
 import treasurehunt.map.Map;
 import treasurehunt.map.MapTile;
+import treasurehunt.search.TargetSource;
 import treasurehunt.search.TileReward;
 
-import java.util.Collections;
-import java.util.HashSet;
-import java.util.Iterator;
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.PriorityQueue;
 
-public abstract class TilePrioritiser extends PriorityQueue<TileReward>
+/**
+ * A TilePrioritiser ranks tiles by a reward and hands them out from the highest
+ * reward to the lowest with next(), ties going to the tile with the lowest index.
+ *
+ * Working out the reward of some tiles is expensive, i.e. it takes several
+ * searches. A prioritiser can give a cheap upper bound of a tile's reward with
+ * bound(), in which case the tile is only checked with valid() and given its
+ * real reward once its bound brings it to the front. A caller that only takes
+ * the first few tiles therefore only pays for working out the reward of the
+ * tiles that could be among them.
+ */
+public abstract class TilePrioritiser implements TargetSource
 {
+    /**
+     * Returned by bound() when a tile's reward should be worked out as soon as
+     * the tile is added.
+     */
+    public static final int NO_BOUND = Integer.MIN_VALUE;
+
+    /**
+     * Returned by bound() when a tile can't possibly be valid.
+     */
+    public static final int INVALID = Integer.MIN_VALUE + 1;
+
     protected final Map map;
 
+    private final PriorityQueue<TileReward> rewards = new PriorityQueue<>();
+
     public TilePrioritiser(Map map)
     {
         this.map = map;
     }
 
-    public void addTiles(HashSet<MapTile> tiles)
+    public void addTile(MapTile tile)
     {
-        Iterator iterator = tiles.iterator();
-        MapTile tile;
+        int bound = bound(tile);
 
-        while(iterator.hasNext()) {
-            tile = (MapTile) iterator.next();
-            if(!valid(tile)) continue;
-            add(new TileReward(tile, reward(tile)));
-        }
+        if(bound == INVALID) return;
+        if(bound != NO_BOUND) rewards.add(new TileReward(tile, bound, true));
+        else if(valid(tile)) rewards.add(new TileReward(tile, reward(tile)));
+    }
+    public void addTiles(Collection<MapTile> tiles)
+    {
+        for(MapTile tile : tiles) addTile(tile);
     }
     public void addTiles(MapTile[] tiles)
     {
-        HashSet<MapTile> set = new HashSet<>();
-        Collections.addAll(set, tiles);
-        addTiles(set);
+        for(MapTile tile : tiles) addTile(tile);
+    }
+
+    /**
+     * Whether there are no valid tiles left to hand out.
+     */
+    @Override
+    public boolean isEmpty() { return best() == null; }
+
+    /**
+     * Takes the tile with the highest reward.
+     *
+     * @return The tile or null if there are no valid tiles left.
+     */
+    public MapTile next()
+    {
+        TileReward best = best();
+        if(best == null) return null;
+
+        rewards.poll();
+        return best.getTile();
+    }
+
+    /**
+     * Takes up to the given number of tiles, highest reward first.
+     */
+    @Override
+    public TileReward[] next(int count)
+    {
+        ArrayList<TileReward> tiles = new ArrayList<>();
+
+        while(tiles.size() < count && best() != null) tiles.add(rewards.poll());
+
+        return tiles.toArray(new TileReward[0]);
     }
 
+    /**
+     * Takes every tile that is left, highest reward first.
+     */
     public MapTile[] toArray()
     {
-        Iterator iterator = iterator();
-        MapTile[] tiles = new MapTile[size()];
-        int i = 0;
+        ArrayList<MapTile> tiles = new ArrayList<>();
+        MapTile tile;
+
+        while((tile = next()) != null) tiles.add(tile);
+
+        return tiles.toArray(new MapTile[0]);
+    }
+
+    /**
+     * Works out the real reward of every tile at the front that only has a
+     * bound until the tile with the highest reward is known.
+     */
+    private TileReward best()
+    {
+        TileReward best;
 
-        while(iterator.hasNext()) {
-            tiles[i++] = ((TileReward) iterator.next()).getTile();
+        while((best = rewards.peek()) != null && best.isBound()) {
+            rewards.poll();
+            if(valid(best.getTile())) rewards.add(new TileReward(best.getTile(), reward(best.getTile())));
         }
 
-        return tiles;
+        return best;
     }
 
+    /**
+     * A cheap upper bound of reward() for the given tile. Prioritisers whose
+     * rewards are cheap to work out don't need to give one.
+     *
+     * @return The bound, INVALID if the tile can't be valid or NO_BOUND to
+     * work out the real reward straight away.
+     */
+    public int bound(MapTile tile) { return NO_BOUND; }
+
     public abstract int reward(MapTile tile);
 
     public abstract boolean valid(MapTile tile);
@@ -2,6 +2,73 @@ package treasurehunt.util;
 
 public class Matrix
 {
+	/**
+	 * Rotates a matrix clockwise by the given number of quarter turns. The
+	 * matrix may have any number of rows and columns; a rotation by an odd
+	 * number of quarter turns swaps the two.
+	 *
+	 * @param matrix The matrix to rotate.
+	 * @param quarterTurns The number of 90 degree clockwise turns, may be
+	 *                     negative to turn anticlockwise.
+	 * @return A new rotated matrix.
+	 */
+	public static char[][] rotate(char[][] matrix, int quarterTurns)
+	{
+		int rows = matrix.length;
+		int columns = matrix[0].length;
+		int[] table = rotationTable(rows, columns, quarterTurns);
+
+		boolean swapped = (quarterTurns & 1) == 1;
+		int rotatedRows = swapped ? columns : rows;
+		int rotatedColumns = swapped ? rows : columns;
+
+		char[][] rotated = new char[rotatedRows][rotatedColumns];
+
+		for(int i = 0; i < rotatedRows; i++) {
+			for(int j = 0; j < rotatedColumns; j++) {
+				int source = table[i * rotatedColumns + j];
+				rotated[i][j] = matrix[source / columns][source % columns];
+			}
+		}
+
+		return rotated;
+	}
+
+	/**
+	 * Builds a lookup table for rotating a matrix of the given size clockwise by
+	 * the given number of quarter turns without creating the rotated matrix.
+	 * The entry for row i, column j of the rotated matrix is at index
+	 * i * rotatedColumns + j and holds the position of the cell it came from in
+	 * the original matrix as row * columns + column.
+	 *
+	 * @param rows The number of rows in the original matrix.
+	 * @param columns The number of columns in the original matrix.
+	 * @param quarterTurns The number of 90 degree clockwise turns, may be
+	 *                     negative to turn anticlockwise.
+	 * @return The lookup table.
+	 */
+	public static int[] rotationTable(int rows, int columns, int quarterTurns)
+	{
+		int turns = ((quarterTurns % 4) + 4) % 4;
+		int rotatedColumns = (turns & 1) == 1 ? rows : columns;
+		int[] table = new int[rows * columns];
+
+		for(int r = 0; r < rows; r++) {
+			for(int c = 0; c < columns; c++) {
+				int i, j;
+				switch(turns) {
+					case 1: i = c; j = rows - r - 1; break;
+					case 2: i = rows - r - 1; j = columns - c - 1; break;
+					case 3: i = columns - c - 1; j = r; break;
+					default: i = r; j = c;
+				}
+				table[i * rotatedColumns + j] = r * columns + c;
+			}
+		}
+
+		return table;
+	}
+
 	public static char[][] transpose(char[][] matrix)
 	{
 		char[][] transpose = new char[matrix[0].length][matrix.length];